@@ -0,0 +1,254 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for aligning many sentence pairs with one {@link WordSequenceAligner}.
+ * A session owns a vocabulary, buffers for the interned sentences, the rolling rows and packed backtrace of the kernels
+ * and the edit script. All of them only ever grow, so once a session has seen the longest sentence pair and the
+ * vocabulary of a corpus, scoring further pairs allocates nothing apart from the result objects that are asked for.
+ * The backtrace is the exception: it grows with the product of the sentence lengths, so one larger than
+ * {@link #MAX_KEPT_BACKTRACE} is allocated for its call only, and {@link #trim()} releases a kept one.
+ * Words that are already lowercase are interned without creating new strings.
+ *
+ * <p>Each thread gets its own session from {@link WordSequenceAligner#getSession()}; sessions can also be created
+ * directly. Results of the last call are kept in the session until the next one.</p>
+ *
+ * <p>Instances are not thread-safe. The vocabulary grows with every new word, so a session should not outlive
+ * the corpus it scores.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public final class AlignerSession {
+
+    /** Largest backtrace kept between calls, in longs: 512 KiB, or about 1400 by 1400 words */
+    static final int MAX_KEPT_BACKTRACE = 1 << 16;
+
+    private final WordSequenceAligner aligner;
+    private final WordVocabulary vocabulary = new WordVocabulary();
+
+    /** Interned reference and hypothesis of the current call */
+    private int[] referenceIds = new int[16];
+    private int[] hypothesisIds = new int[16];
+    private int referenceLength;
+    private int hypothesisLength;
+
+    /** Substitutions, insertions and deletions of the last alignment; used as output by the kernels */
+    final int[] counts = new int[3];
+
+    /** Rolling rows of the kernels */
+    int[] prevCost = new int[0], curCost = new int[0];
+    int[] prevSub = new int[0], curSub = new int[0];
+    int[] prevGap = new int[0], curGap = new int[0];
+
+    /** Packed 2-bit backtrace of {@link WordSequenceAligner#alignOps(int[], int[])} */
+    private long[] backtrace = new long[0];
+
+    /** Edit script of the last {@link #alignOps(String[], String[])} */
+    byte[] script = new byte[0];
+    private int scriptLength;
+
+    /** Scratch space of the bit-parallel distance */
+    final BitParallelEditDistance.Buffers bitVectors = new BitParallelEditDistance.Buffers();
+
+    /**
+     * Constructor.
+     * @param aligner aligner providing the penalties and kernels
+     */
+    public AlignerSession(WordSequenceAligner aligner) {
+        this.aligner = aligner;
+    }
+
+    /** @return the aligner this session works for */
+    public WordSequenceAligner getAligner() {
+        return aligner;
+    }
+
+    /** @return the vocabulary the sentences of this session are interned with */
+    public WordVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Aligns the hypothesis words to the reference words, keeping only the edit operation counts.
+     * The counts are identical to those of {@link WordSequenceAligner#alignCounts(String[], String[])}
+     * and are available from {@link #getNumSubstitutions()}, {@link #getNumInsertions()} and {@link #getNumDeletions()}.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return total number of word errors
+     */
+    public int alignCounts(String[] reference, String[] hypothesis) {
+        intern(reference, hypothesis);
+        aligner.alignCounts(referenceIds, referenceLength, hypothesisIds, hypothesisLength, this);
+        scriptLength = 0;
+        return counts[0] + counts[1] + counts[2];
+    }
+
+    /**
+     * Counts the word errors of the alignment, as {@link WordSequenceAligner#countErrors(String[], String[])}.
+     * With uniform penalties the errors come from the bit-parallel distance and the counts of the session are not updated.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return total number of word errors
+     */
+    public int countErrors(String[] reference, String[] hypothesis) {
+        intern(reference, hypothesis);
+        return aligner.countErrors(referenceIds, referenceLength, hypothesisIds, hypothesisLength, this);
+    }
+
+    /**
+     * Aligns the hypothesis words to the reference words and adds the counts to the statistics.
+     *
+     * @param statistics statistics to add the result to
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     */
+    public void add(WordSequenceAligner.SummaryStatistics statistics, String[] reference, String[] hypothesis) {
+        alignCounts(reference, hypothesis);
+        statistics.add(counts[0], counts[1], counts[2], referenceLength, hypothesisLength);
+    }
+
+    /**
+     * Aligns an already interned sentence pair, stored as two ranges of one array, and adds the counts to the statistics.
+     *
+     * @param statistics statistics to add the result to
+     * @param ids word IDs holding both sentences
+     * @param referenceOffset start of the reference words
+     * @param referenceLength number of reference words
+     * @param hypothesisOffset start of the hypothesis words
+     * @param hypothesisLength number of hypothesis words
+     */
+    void add(WordSequenceAligner.SummaryStatistics statistics, int[] ids, int referenceOffset, int referenceLength,
+             int hypothesisOffset, int hypothesisLength) {
+        ensureIdCapacity(referenceLength, hypothesisLength);
+        System.arraycopy(ids, referenceOffset, referenceIds, 0, referenceLength);
+        System.arraycopy(ids, hypothesisOffset, hypothesisIds, 0, hypothesisLength);
+        this.referenceLength = referenceLength;
+        this.hypothesisLength = hypothesisLength;
+        aligner.alignCounts(referenceIds, referenceLength, hypothesisIds, hypothesisLength, this);
+        scriptLength = 0;
+        statistics.add(counts[0], counts[1], counts[2], referenceLength, hypothesisLength);
+    }
+
+    /**
+     * Produces the edit script of the alignment, as {@link WordSequenceAligner#alignOps(String[], String[])}.
+     * The script is left in the session, see {@link #getOp(int)}, and the counts are updated.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return number of edit operations
+     */
+    public int alignOps(String[] reference, String[] hypothesis) {
+        intern(reference, hypothesis);
+        scriptLength = aligner.alignOps(referenceIds, referenceLength, hypothesisIds, hypothesisLength, this);
+        counts[0] = counts[1] = counts[2] = 0;
+        for (int k = 0; k < scriptLength; k++) {
+            switch (script[k]) {
+                case WordSequenceAligner.SUB: counts[0]++; break;
+                case WordSequenceAligner.INS: counts[1]++; break;
+                case WordSequenceAligner.DEL: counts[2]++; break;
+            }
+        }
+        return scriptLength;
+    }
+
+    /**
+     * @param index position in the edit script of the last {@link #alignOps(String[], String[])}
+     * @return edit operation {@link WordSequenceAligner#OK}, {@link WordSequenceAligner#SUB}, {@link WordSequenceAligner#INS}
+     * or {@link WordSequenceAligner#DEL}
+     */
+    public byte getOp(int index) {
+        if (index < 0 || index >= scriptLength) {
+            throw new IndexOutOfBoundsException();
+        }
+        return script[index];
+    }
+
+    /** @return a copy of the edit script of the last {@link #alignOps(String[], String[])} */
+    public byte[] getOps() {
+        return Arrays.copyOf(script, scriptLength);
+    }
+
+    /** @return number of substitutions of the last alignment */
+    public int getNumSubstitutions() {
+        return counts[0];
+    }
+
+    /** @return number of insertions of the last alignment */
+    public int getNumInsertions() {
+        return counts[1];
+    }
+
+    /** @return number of deletions of the last alignment */
+    public int getNumDeletions() {
+        return counts[2];
+    }
+
+    /** @return the counts of the last alignment as a result object */
+    public WordSequenceAligner.AlignmentCounts getCounts() {
+        return aligner.new AlignmentCounts(counts[0], counts[1], counts[2], referenceLength, hypothesisLength);
+    }
+
+    private void intern(String[] reference, String[] hypothesis) {
+        ensureIdCapacity(reference.length, hypothesis.length);
+        for (int i = 0; i < reference.length; i++) referenceIds[i] = vocabulary.intern(reference[i]);
+        for (int j = 0; j < hypothesis.length; j++) hypothesisIds[j] = vocabulary.intern(hypothesis[j]);
+        referenceLength = reference.length;
+        hypothesisLength = hypothesis.length;
+    }
+
+    private void ensureIdCapacity(int referenceLength, int hypothesisLength) {
+        if (referenceIds.length < referenceLength) {
+            referenceIds = new int[Math.max(referenceLength, referenceIds.length * 2)];
+        }
+        if (hypothesisIds.length < hypothesisLength) {
+            hypothesisIds = new int[Math.max(hypothesisLength, hypothesisIds.length * 2)];
+        }
+    }
+
+    void ensureRowCapacity(int rowLength) {
+        if (prevCost.length >= rowLength) {
+            return;
+        }
+        int capacity = Math.max(rowLength, prevCost.length * 2);
+        prevCost = new int[capacity];
+        curCost = new int[capacity];
+        prevSub = new int[capacity];
+        curSub = new int[capacity];
+        prevGap = new int[capacity];
+        curGap = new int[capacity];
+    }
+
+    /**
+     * Releases the backtrace and the rolling rows, e.g. before a session that has aligned long sentences is kept around idle.
+     * The results of the last call are not affected; buffers are allocated again as needed.
+     */
+    public void trim() {
+        backtrace = new long[0];
+        prevCost = curCost = prevSub = curSub = prevGap = curGap = new int[0];
+    }
+
+    /** @return a backtrace of at least the given number of longs, of which that many are zeroed */
+    long[] clearBacktrace(int size) {
+        if (backtrace.length < size) {
+            if (size > MAX_KEPT_BACKTRACE) {
+                // Too large to keep around for the rest of the thread's life
+                return new long[size];
+            }
+            // Grows quadratically with the sentence length, so it is not over-allocated
+            backtrace = new long[size];
+        } else {
+            Arrays.fill(backtrace, 0, size, 0L);
+        }
+        return backtrace;
+    }
+
+    byte[] ensureScriptCapacity(int size) {
+        if (script.length < size) {
+            script = new byte[Math.max(size, script.length * 2)];
+        }
+        return script;
+    }
+}
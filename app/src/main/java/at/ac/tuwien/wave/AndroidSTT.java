@@ -8,6 +8,8 @@ import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -30,6 +32,7 @@ public class AndroidSTT implements RecognitionListener {
     private final Intent speechRecognizerIntent;
     private String sentences;
     private String partialSentence;
+    private final List<String> alternatives = new ArrayList<>();
 
     public AndroidSTT(MainActivity context, TextView resultText, TextView debugText) {
         this.context = context;
@@ -119,15 +122,32 @@ public class AndroidSTT implements RecognitionListener {
      */
     @Override
     public void onResults(Bundle results) {
-        String result = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION).get(0);
+        List<String> recognitions = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+        String result = recognitions.get(0);
         if (result != null && result.length() > 0) {
-            result = Character.toUpperCase(result.charAt(0)) + result.substring(1) + ". ";
+            // Every alternative continues the sentences recognized so far, best first.
+            alternatives.clear();
+            for (String alternative : recognitions) {
+                if (alternative != null && alternative.length() > 0) {
+                    alternatives.add(sentences + toSentence(alternative));
+                }
+            }
+            result = toSentence(result);
             sentences += result;
             resultText.setText(sentences);
             endService();
         }
     }
 
+    /**
+     * Capitalizes a recognition result and ends it with a full stop.
+     *
+     * @Author: Christoph Winkler
+     */
+    private String toSentence(String result) {
+        return Character.toUpperCase(result.charAt(0)) + result.substring(1) + ". ";
+    }
+
     /**
      * Displays the decoded partial results on the result view.
      *
@@ -200,5 +220,16 @@ public class AndroidSTT implements RecognitionListener {
      */
     public void setSentences(String sentences) {
         this.sentences = sentences;
+        this.alternatives.clear();
+    }
+
+    /**
+     * Returns the N-best alternatives of the whole recognized text, best first.
+     * The first alternative equals the displayed text; the list is empty until a result has been received.
+     *
+     * @Author: Christoph Winkler
+     */
+    public List<String> getAlternatives() {
+        return alternatives;
     }
 }
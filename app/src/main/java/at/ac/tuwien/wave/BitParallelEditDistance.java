@@ -0,0 +1,194 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Unit-cost edit distance between two interned word sequences, computed bit-parallel after Myers (1999)
+ * in the block-based formulation of Hyyr&ouml; (2003).
+ * Each column of the dynamic programming table is encoded as vertical deltas packed into 64-bit words, so a whole
+ * block of 64 reference positions is advanced per machine operation and the cost is O(&lceil;n/64&rceil;&middot;m).
+ *
+ * <p>Only the distance is computed. It equals the number of word errors of {@link WordSequenceAligner} whenever all of
+ * its penalties are equal, but it does not tell substitutions, insertions and deletions apart.</p>
+ *
+ * @see WordVocabulary
+ * @Author: Christoph Winkler
+ */
+public final class BitParallelEditDistance {
+
+    private static final int WORD_SIZE = 64;
+
+    /** IDs up to this many times the pattern length are remapped through a direct lookup table, sparser ones by binary search */
+    private static final int DIRECT_LOOKUP_FACTOR = 4;
+
+    private BitParallelEditDistance() {
+    }
+
+    /**
+     * Computes the Levenshtein distance between two word ID sequences.
+     * The shorter sequence is packed into bit-vectors, the longer one is streamed.
+     *
+     * @param a IDs of the words of the first sequence; any non-negative ints, e.g. also code points
+     * @param b IDs of the words of the second sequence, interned by the same vocabulary
+     * @return minimum number of substitutions, insertions and deletions turning one sequence into the other
+     */
+    public static int distance(int[] a, int[] b) {
+        return distance(a, a.length, b, b.length, new Buffers());
+    }
+
+    /**
+     * Computes the Levenshtein distance between the first aLength IDs of a and the first bLength IDs of b,
+     * with the bit-vectors and lookup tables taken from reusable buffers.
+     */
+    static int distance(int[] a, int aLength, int[] b, int bLength, Buffers buffers) {
+        final boolean aIsPattern = aLength <= bLength;
+        final int[] pattern = aIsPattern ? a : b;
+        final int[] text = aIsPattern ? b : a;
+        final int m = aIsPattern ? aLength : bLength;
+        final int textLength = aIsPattern ? bLength : aLength;
+        if (m == 0) {
+            return textLength;
+        }
+
+        // Remap the IDs occurring in the pattern to a dense alphabet; text words outside it never match.
+        int maxId = 0;
+        for (int i = 0; i < m; i++) maxId = Math.max(maxId, pattern[i]);
+        int[] symbol = null;
+        int[] sortedIds = null;
+        int alphabetSize = 0;
+        if (maxId <= DIRECT_LOOKUP_FACTOR * (m + WORD_SIZE)) {
+            symbol = buffers.symbolTable(maxId + 1);
+            for (int i = 0; i < m; i++) {
+                if (symbol[pattern[i]] < 0) {
+                    symbol[pattern[i]] = alphabetSize++;
+                }
+            }
+        } else {
+            sortedIds = buffers.sortedIds(m);
+            System.arraycopy(pattern, 0, sortedIds, 0, m);
+            Arrays.sort(sortedIds, 0, m);
+            for (int i = 0; i < m; i++) {
+                int id = sortedIds[i];
+                if (alphabetSize == 0 || sortedIds[alphabetSize - 1] != id) {
+                    sortedIds[alphabetSize++] = id;
+                }
+            }
+        }
+
+        final int blocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+        final int lastBit = (m - 1) % WORD_SIZE;
+
+        // peq[s * blocks + k] has bit t set when pattern position k * 64 + t holds symbol s
+        long[] peq = buffers.peq(alphabetSize * blocks);
+        for (int i = 0; i < m; i++) {
+            peq[symbolOf(pattern[i], symbol, sortedIds, alphabetSize) * blocks + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+        }
+
+        // Column 0 of the table grows by one per row: all vertical deltas are +1
+        long[] pv = buffers.pv(blocks);
+        long[] mv = buffers.mv(blocks);
+
+        int score = m;
+        for (int t = 0; t < textLength; t++) {
+            int id = text[t];
+            int s = id <= maxId ? symbolOf(id, symbol, sortedIds, alphabetSize) : -1;
+            int eqBase = s * blocks;
+
+            // Row 0 of the table grows by one per column, so the first block receives a horizontal delta of +1
+            int hout = 1;
+            for (int k = 0; k < blocks; k++) {
+                long eq = s >= 0 ? peq[eqBase + k] : 0L;
+                int hin = hout;
+                long hinIsNeg = hin < 0 ? 1L : 0L;
+
+                long pvb = pv[k];
+                long mvb = mv[k];
+                long xv = eq | mvb;
+                eq |= hinIsNeg;
+                long xh = (((eq & pvb) + pvb) ^ pvb) | eq;
+                long ph = mvb | ~(xh | pvb);
+                long mh = pvb & xh;
+
+                int bit = k == blocks - 1 ? lastBit : WORD_SIZE - 1;
+                hout = (int) ((ph >>> bit) & 1L) - (int) ((mh >>> bit) & 1L);
+
+                ph <<= 1;
+                mh <<= 1;
+                mh |= hinIsNeg;
+                if (hin > 0) {
+                    ph |= 1L;
+                }
+                pv[k] = mh | ~(xv | ph);
+                mv[k] = ph & xv;
+            }
+            score += hout;
+        }
+
+        if (symbol != null) {
+            // Leave the lookup table all unused for the next call
+            for (int i = 0; i < m; i++) symbol[pattern[i]] = -1;
+        }
+        return score;
+    }
+
+    private static int symbolOf(int id, int[] symbol, int[] sortedIds, int alphabetSize) {
+        if (symbol != null) {
+            return symbol[id];
+        }
+        int index = Arrays.binarySearch(sortedIds, 0, alphabetSize, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Scratch space of {@link #distance(int[], int, int[], int, Buffers)}. The arrays only ever grow.
+     * The symbol table is kept at -1 between calls, so that only the entries of the pattern need to be touched.
+     */
+    static final class Buffers {
+        private int[] symbol = new int[0];
+        private int[] sortedIds = new int[0];
+        private long[] peq = new long[0];
+        private long[] pv = new long[0];
+        private long[] mv = new long[0];
+
+        int[] symbolTable(int size) {
+            if (symbol.length < size) {
+                symbol = new int[Math.max(size, symbol.length * 2)];
+                Arrays.fill(symbol, -1);
+            }
+            return symbol;
+        }
+
+        int[] sortedIds(int size) {
+            if (sortedIds.length < size) {
+                sortedIds = new int[Math.max(size, sortedIds.length * 2)];
+            }
+            return sortedIds;
+        }
+
+        long[] peq(int size) {
+            if (peq.length < size) {
+                peq = new long[Math.max(size, peq.length * 2)];
+            } else {
+                Arrays.fill(peq, 0, size, 0L);
+            }
+            return peq;
+        }
+
+        long[] pv(int blocks) {
+            if (pv.length < blocks) {
+                pv = new long[Math.max(blocks, pv.length * 2)];
+            }
+            Arrays.fill(pv, 0, blocks, -1L);
+            return pv;
+        }
+
+        long[] mv(int blocks) {
+            if (mv.length < blocks) {
+                mv = new long[Math.max(blocks, mv.length * 2)];
+            } else {
+                Arrays.fill(mv, 0, blocks, 0L);
+            }
+            return mv;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Interns words given as UTF-8 byte ranges into dense int IDs, without creating a string per word.
+ * The bytes of every distinct word are appended once to a shared pool; an open-addressing table with linear probing
+ * maps them to their IDs. Words are compared byte by byte, so callers must normalize them beforehand.
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+final class ByteWordInterner {
+
+    /** Marks free slots of the table */
+    private static final int FREE = -1;
+
+    /** Bytes of all words, back to back */
+    private byte[] pool = new byte[1 << 12];
+    private int poolSize;
+
+    /** Start of every word in the pool and its hash, by ID; the end is the start of the next word */
+    private int[] starts = new int[256];
+    private int[] hashes = new int[256];
+    private int size;
+
+    /** IDs by slot */
+    private int[] table = new int[512];
+    private int mask = table.length - 1;
+
+    ByteWordInterner() {
+        Arrays.fill(table, FREE);
+    }
+
+    /**
+     * Returns the ID of the word, assigning the next free ID if it has not been seen before.
+     *
+     * @param word buffer holding the word
+     * @param length number of bytes of the word, from the start of the buffer
+     * @return ID of the word
+     */
+    int intern(byte[] word, int length) {
+        int hash = hash(word, length);
+        int slot = hash & mask;
+        while (table[slot] != FREE) {
+            int id = table[slot];
+            if (hashes[id] == hash && equals(id, word, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length * 2));
+        }
+        System.arraycopy(word, 0, pool, poolSize, length);
+        if (size + 1 >= starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+        int id = size++;
+        starts[id] = poolSize;
+        hashes[id] = hash;
+        poolSize += length;
+        starts[size] = poolSize;
+        table[slot] = id;
+        if (size * 2 > table.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /** @return number of distinct words */
+    int size() {
+        return size;
+    }
+
+    private boolean equals(int id, byte[] word, int length) {
+        int start = starts[id];
+        if (starts[id + 1] - start != length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (pool[start + k] != word[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] word, int length) {
+        int hash = 0;
+        for (int k = 0; k < length; k++) {
+            hash = 31 * hash + word[k];
+        }
+        // Spread the bits, the table only looks at the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, FREE);
+        mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Character error rate (CER) of recognized text, e.g. the character-level output of a CTC model.
+ * Texts are turned into arrays of Unicode code points, which are aligned by the int kernels of {@link WordSequenceAligner}
+ * exactly like interned words: the rolling counts kernel, its banded variant and, for uniform penalties, the bit-parallel
+ * {@link BitParallelEditDistance}. No vocabulary is needed since a code point already is a comparable int.
+ *
+ * <p>Texts are lowercased, runs of whitespace become a single space and leading and trailing whitespace is dropped,
+ * so that spacing differences only count as far as word boundaries differ.</p>
+ *
+ * <p>Results are collected in a {@link WordSequenceAligner.SummaryStatistics}, whose word counts and word error rate
+ * are then character counts and character error rate.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class CharacterErrorRate {
+
+    private final WordSequenceAligner aligner;
+
+    /**
+     * Constructor.
+     * Penalizes substitutions, insertions and deletions equally, the usual definition of CER.
+     */
+    public CharacterErrorRate() {
+        this(new WordSequenceAligner(1, 1, 1));
+    }
+
+    /**
+     * Constructor.
+     * @param aligner aligner providing the penalties and kernels
+     */
+    public CharacterErrorRate(WordSequenceAligner aligner) {
+        this.aligner = aligner;
+    }
+
+    /**
+     * Converts a text into the code points that are aligned.
+     * @param text text to convert
+     * @return code points of the lowercased text with whitespace normalized to single spaces
+     */
+    public static int[] codePoints(String text) {
+        String lower = text.toLowerCase();
+        int[] result = new int[lower.length()];
+        int n = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < lower.length(); ) {
+            int c = lower.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = n > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                result[n++] = ' ';
+                pendingSpace = false;
+            }
+            result[n++] = c;
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Produces the edit operation counts of the character alignment of the hypothesis to the reference.
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     * @return character substitutions, insertions and deletions
+     */
+    public WordSequenceAligner.AlignmentCounts alignCounts(String reference, String hypothesis) {
+        return aligner.alignCounts(codePoints(reference), codePoints(hypothesis));
+    }
+
+    /**
+     * Produces the edit operation counts of the character alignment, provided it has at most maxErrors errors.
+     * @see WordSequenceAligner#alignCountsBanded(int[], int[], int)
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     * @param maxErrors highest acceptable number of character errors
+     * @return character substitutions, insertions and deletions, or null if there are more than maxErrors errors
+     */
+    public WordSequenceAligner.AlignmentCounts alignCountsBanded(String reference, String hypothesis, int maxErrors) {
+        return aligner.alignCountsBanded(codePoints(reference), codePoints(hypothesis), maxErrors);
+    }
+
+    /**
+     * Decides whether the character error rate of the hypothesis exceeds a threshold, using the banded kernel.
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     * @param maxCharacterErrorRate highest acceptable character error rate
+     * @return true when the character error rate is greater than maxCharacterErrorRate
+     */
+    public boolean exceedsCharacterErrorRate(String reference, String hypothesis, float maxCharacterErrorRate) {
+        int[] ref = codePoints(reference);
+        int maxErrors = (int) Math.floor(maxCharacterErrorRate * ref.length);
+        return aligner.alignCountsBanded(ref, codePoints(hypothesis), maxErrors) == null;
+    }
+
+    /**
+     * Counts the character errors, bit-parallel when the penalties are uniform.
+     * @see WordSequenceAligner#countErrors(int[], int[])
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     * @return total number of character errors
+     */
+    public int countErrors(String reference, String hypothesis) {
+        return aligner.countErrors(codePoints(reference), codePoints(hypothesis));
+    }
+
+    /**
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     * @return the character error rate of the hypothesis
+     */
+    public float getCharacterErrorRate(String reference, String hypothesis) {
+        int[] ref = codePoints(reference);
+        return aligner.countErrors(ref, codePoints(hypothesis)) / (float) ref.length;
+    }
+
+    /**
+     * Adds the character alignment counts of a text pair to the statistics.
+     * @param statistics statistics to add to, created by {@link #newStatistics()}
+     * @param reference true text
+     * @param hypothesis hypothesized text
+     */
+    public void add(WordSequenceAligner.SummaryStatistics statistics, String reference, String hypothesis) {
+        statistics.add(alignCounts(reference, hypothesis));
+    }
+
+    /** @return an empty collection of character alignment results */
+    public WordSequenceAligner.SummaryStatistics newStatistics() {
+        return aligner.new SummaryStatistics();
+    }
+
+    /**
+     * Aligns the characters of a corpus of text pairs on a fork/join pool.
+     * @see WordSequenceAligner#alignCounts(List, List, int)
+     * @param references true texts
+     * @param hypotheses hypothesized texts, with the same size as the references
+     * @param parallelism number of threads to align on
+     * @return the character alignment counts of all pairs
+     */
+    public WordSequenceAligner.SummaryStatistics alignCounts(List<String> references, List<String> hypotheses, int parallelism) {
+        if (references.size() != hypotheses.size() || parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int leafSize = Math.max(1, references.size() / (parallelism * 8));
+            return pool.invoke(new CountsTask(references, hypotheses, 0, references.size(), leafSize));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private class CountsTask extends RecursiveTask<WordSequenceAligner.SummaryStatistics> {
+        private final List<String> references;
+        private final List<String> hypotheses;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        CountsTask(List<String> references, List<String> hypotheses, int from, int to, int leafSize) {
+            this.references = references;
+            this.hypotheses = hypotheses;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected WordSequenceAligner.SummaryStatistics compute() {
+            if (to - from <= leafSize) {
+                WordSequenceAligner.SummaryStatistics statistics = newStatistics();
+                for (int i = from; i < to; i++) {
+                    add(statistics, references.get(i), hypotheses.get(i));
+                }
+                return statistics;
+            }
+            int mid = (from + to) >>> 1;
+            CountsTask left = new CountsTask(references, hypotheses, from, mid, leafSize);
+            CountsTask right = new CountsTask(references, hypotheses, mid, to, leafSize);
+            right.fork();
+            WordSequenceAligner.SummaryStatistics statistics = left.compute();
+            statistics.merge(right.join());
+            return statistics;
+        }
+    }
+}
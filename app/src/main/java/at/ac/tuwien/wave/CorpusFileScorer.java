@@ -0,0 +1,372 @@
+package at.ac.tuwien.wave;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores a corpus stored as two line-aligned UTF-8 files, one sentence per line, without loading it into the heap.
+ * Both files are memory-mapped and every line is tokenized in place: words are lowercased into a small scratch buffer
+ * and interned by their bytes, so no string is created per line or per word. The interned sentences are collected
+ * in batches of a fixed number of lines and aligned by the sessions of the {@link WordSequenceAligner}, optionally
+ * on a fork/join pool.
+ *
+ * <p>Lines are either plain text, one column of tab-separated values, or one string field of JSON objects.
+ * Words are separated by ASCII whitespace. ASCII letters are lowercased directly; words containing other characters
+ * are lowercased through a string, like {@link WordVocabulary} does. JSON support is limited to finding the first
+ * occurrence of <code>"field": "value"</code> on the line and decoding the escapes of the value; a line without
+ * the field is an empty sentence.</p>
+ *
+ * <p>Memory stays bounded by the vocabulary, one batch of word IDs and the mapped segments, which the operating system
+ * pages in and out; the {@link WordSequenceAligner.SummaryStatistics} only add up totals. Per-sentence counts, e.g. for
+ * {@link ErrorRateBootstrap}, are kept on request and then grow with the corpus by four ints per sentence.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class CorpusFileScorer {
+
+    /** Number of lines aligned together */
+    private static final int BATCH_LINES = 8192;
+
+    /** Line formats */
+    private static final int PLAIN = 0, TSV = 1, JSONL = 2;
+
+    private final WordSequenceAligner aligner;
+    private final int parallelism;
+    private final boolean keepSentences;
+    private final ByteWordInterner interner = new ByteWordInterner();
+
+    /** Bytes of the current word, lowercased */
+    private byte[] word = new byte[64];
+    private int wordLength;
+    private boolean wordNonAscii;
+
+    /** Word IDs of the current batch; the reference and the hypothesis of each line follow each other */
+    private int[] ids = new int[1 << 16];
+    private int idsSize;
+    private final int[] lineStarts = new int[BATCH_LINES];
+    private final int[] referenceLengths = new int[BATCH_LINES];
+    private final int[] hypothesisLengths = new int[BATCH_LINES];
+
+    /** Range of the JSON value found by {@link #findField(MappedLineReader, byte[])} */
+    private int valueStart;
+    private int valueEnd;
+
+    /**
+     * Constructor. The statistics only keep the totals of the corpus.
+     * @param aligner aligner to align with
+     * @param parallelism number of threads to align on
+     */
+    public CorpusFileScorer(WordSequenceAligner aligner, int parallelism) {
+        this(aligner, parallelism, false);
+    }
+
+    /**
+     * Constructor.
+     * @param aligner aligner to align with
+     * @param parallelism number of threads to align on
+     * @param keepSentences whether the statistics keep the counts of every sentence, in line order
+     */
+    public CorpusFileScorer(WordSequenceAligner aligner, int parallelism, boolean keepSentences) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.aligner = aligner;
+        this.parallelism = parallelism;
+        this.keepSentences = keepSentences;
+    }
+
+    /**
+     * Scores two plain text files.
+     *
+     * @param references file with one reference sentence per line
+     * @param hypotheses file with one hypothesis sentence per line, with the same number of lines
+     * @return statistics of the corpus
+     */
+    public WordSequenceAligner.SummaryStatistics score(File references, File hypotheses) throws IOException {
+        return score(references, hypotheses, PLAIN, 0, null);
+    }
+
+    /**
+     * Scores one column of two files of tab-separated values. A line with fewer columns is an empty sentence.
+     *
+     * @param references file with one reference sentence per line
+     * @param hypotheses file with one hypothesis sentence per line, with the same number of lines
+     * @param column index of the column holding the sentence, starting at 0
+     * @return statistics of the corpus
+     */
+    public WordSequenceAligner.SummaryStatistics scoreTsv(File references, File hypotheses, int column) throws IOException {
+        if (column < 0) {
+            throw new IllegalArgumentException();
+        }
+        return score(references, hypotheses, TSV, column, null);
+    }
+
+    /**
+     * Scores one string field of two files with one JSON object per line.
+     *
+     * @param references file with one reference sentence per line
+     * @param hypotheses file with one hypothesis sentence per line, with the same number of lines
+     * @param field name of the field holding the sentence
+     * @return statistics of the corpus
+     */
+    public WordSequenceAligner.SummaryStatistics scoreJsonl(File references, File hypotheses, String field) throws IOException {
+        return score(references, hypotheses, JSONL, 0, ("\"" + field + "\"").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return number of distinct words seen so far */
+    public int getVocabularySize() {
+        return interner.size();
+    }
+
+    private WordSequenceAligner.SummaryStatistics score(File references, File hypotheses, int format, int column, byte[] field)
+            throws IOException {
+        WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics(keepSentences);
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try (MappedLineReader ref = new MappedLineReader(references); MappedLineReader hyp = new MappedLineReader(hypotheses)) {
+            int lines;
+            do {
+                idsSize = 0;
+                lines = 0;
+                while (lines < BATCH_LINES) {
+                    boolean hasReference = ref.nextLine();
+                    if (hasReference != hyp.nextLine()) {
+                        // The files do not have the same number of lines
+                        throw new IllegalArgumentException();
+                    }
+                    if (!hasReference) {
+                        break;
+                    }
+                    lineStarts[lines] = idsSize;
+                    referenceLengths[lines] = tokenizeLine(ref, format, column, field);
+                    hypothesisLengths[lines] = tokenizeLine(hyp, format, column, field);
+                    lines++;
+                }
+                if (pool == null) {
+                    alignBatch(statistics, 0, lines);
+                } else if (lines > 0) {
+                    int leafSize = Math.max(64, lines / (parallelism * 8));
+                    statistics.merge(pool.invoke(new BatchTask(0, lines, leafSize)));
+                }
+            } while (lines == BATCH_LINES);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return statistics;
+    }
+
+    private void alignBatch(WordSequenceAligner.SummaryStatistics statistics, int from, int to) {
+        AlignerSession session = aligner.getSession();
+        for (int k = from; k < to; k++) {
+            int start = lineStarts[k];
+            session.add(statistics, ids, start, referenceLengths[k], start + referenceLengths[k], hypothesisLengths[k]);
+        }
+    }
+
+    /** @return number of words appended to the batch */
+    private int tokenizeLine(MappedLineReader reader, int format, int column, byte[] field) {
+        int start = reader.lineStart();
+        int end = reader.lineEnd();
+        switch (format) {
+            case TSV:
+                for (int c = 0; c < column; c++) {
+                    while (start < end && reader.get(start) != '\t') start++;
+                    if (start == end) {
+                        return 0;
+                    }
+                    start++;
+                }
+                int stop = start;
+                while (stop < end && reader.get(stop) != '\t') stop++;
+                return tokenize(reader, start, stop, false);
+            case JSONL:
+                return findField(reader, field) ? tokenize(reader, valueStart, valueEnd, true) : 0;
+            default:
+                return tokenize(reader, start, end, false);
+        }
+    }
+
+    /**
+     * Splits a byte range on whitespace and appends the IDs of its words to the batch.
+     * @param escapes whether the range is a JSON string value whose escapes are decoded
+     * @return number of words appended
+     */
+    private int tokenize(MappedLineReader reader, int from, int to, boolean escapes) {
+        int count = 0;
+        wordLength = 0;
+        wordNonAscii = false;
+        for (int k = from; k < to; k++) {
+            int b = reader.get(k) & 0xFF;
+            if (escapes && b == '\\' && k + 1 < to) {
+                b = reader.get(++k) & 0xFF;
+                if (b == 'u') {
+                    int c = hex(reader, k + 1, to);
+                    k += 4;
+                    if (Character.isHighSurrogate((char) c) && k + 6 < to && reader.get(k + 1) == '\\' && reader.get(k + 2) == 'u') {
+                        int low = hex(reader, k + 3, to);
+                        if (Character.isLowSurrogate((char) low)) {
+                            c = Character.toCodePoint((char) c, (char) low);
+                            k += 6;
+                        }
+                    }
+                    if (Character.isWhitespace(c)) {
+                        count += endWord();
+                    } else {
+                        appendCodePoint(c);
+                    }
+                    continue;
+                }
+                if (b == 'n' || b == 't' || b == 'r' || b == 'b' || b == 'f') {
+                    count += endWord();
+                    continue;
+                }
+                // \" \\ \/ stand for the character itself
+            }
+            if (isWhitespace(b)) {
+                count += endWord();
+            } else {
+                append(b);
+            }
+        }
+        return count + endWord();
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    private void append(int b) {
+        if (wordLength == word.length) {
+            word = Arrays.copyOf(word, word.length * 2);
+        }
+        if (b >= 'A' && b <= 'Z') {
+            b += 'a' - 'A';
+        } else if (b >= 0x80) {
+            wordNonAscii = true;
+        }
+        word[wordLength++] = (byte) b;
+    }
+
+    /** Appends a code point as UTF-8 */
+    private void appendCodePoint(int c) {
+        if (c < 0x80) {
+            append(c);
+        } else if (c < 0x800) {
+            append(0xC0 | c >> 6);
+            append(0x80 | c & 0x3F);
+        } else if (c < 0x10000) {
+            append(0xE0 | c >> 12);
+            append(0x80 | c >> 6 & 0x3F);
+            append(0x80 | c & 0x3F);
+        } else {
+            append(0xF0 | c >> 18);
+            append(0x80 | c >> 12 & 0x3F);
+            append(0x80 | c >> 6 & 0x3F);
+            append(0x80 | c & 0x3F);
+        }
+    }
+
+    /** Interns the current word, if any, and appends its ID to the batch */
+    private int endWord() {
+        if (wordLength == 0) {
+            return 0;
+        }
+        int id;
+        if (wordNonAscii) {
+            byte[] lower = new String(word, 0, wordLength, StandardCharsets.UTF_8).toLowerCase().getBytes(StandardCharsets.UTF_8);
+            id = interner.intern(lower, lower.length);
+        } else {
+            id = interner.intern(word, wordLength);
+        }
+        if (idsSize == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[idsSize++] = id;
+        wordLength = 0;
+        wordNonAscii = false;
+        return 1;
+    }
+
+    private static int hex(MappedLineReader reader, int from, int to) {
+        if (from + 4 > to) {
+            throw new IllegalArgumentException();
+        }
+        int value = 0;
+        for (int k = from; k < from + 4; k++) {
+            int digit = Character.digit(reader.get(k), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException();
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Finds the string value of the first occurrence of the quoted field name on the current line.
+     * @return whether the field was found; its value is left in {@link #valueStart} and {@link #valueEnd}
+     */
+    private boolean findField(MappedLineReader reader, byte[] field) {
+        final int end = reader.lineEnd();
+        search:
+        for (int k = reader.lineStart(); k + field.length <= end; k++) {
+            for (int f = 0; f < field.length; f++) {
+                if (reader.get(k + f) != field[f]) {
+                    continue search;
+                }
+            }
+            int p = k + field.length;
+            while (p < end && isWhitespace(reader.get(p))) p++;
+            if (p == end || reader.get(p) != ':') {
+                continue;
+            }
+            p++;
+            while (p < end && isWhitespace(reader.get(p))) p++;
+            if (p == end || reader.get(p) != '"') {
+                return false;
+            }
+            valueStart = ++p;
+            while (p < end && reader.get(p) != '"') {
+                p += reader.get(p) == '\\' ? 2 : 1;
+            }
+            valueEnd = Math.min(p, end);
+            return true;
+        }
+        return false;
+    }
+
+    private class BatchTask extends RecursiveTask<WordSequenceAligner.SummaryStatistics> {
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        BatchTask(int from, int to, int leafSize) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected WordSequenceAligner.SummaryStatistics compute() {
+            if (to - from <= leafSize) {
+                WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics(keepSentences);
+                alignBatch(statistics, from, to);
+                return statistics;
+            }
+            int mid = (from + to) >>> 1;
+            BatchTask left = new BatchTask(from, mid, leafSize);
+            BatchTask right = new BatchTask(mid, to, leafSize);
+            right.fork();
+            WordSequenceAligner.SummaryStatistics statistics = left.compute();
+            statistics.merge(right.join());
+            return statistics;
+        }
+    }
+}
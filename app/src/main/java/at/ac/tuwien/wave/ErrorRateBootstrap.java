@@ -0,0 +1,290 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bootstrap confidence intervals and paired bootstrap significance tests (Koehn, 2004) for the corpus error rate
+ * of {@link WordSequenceAligner.SummaryStatistics}. The statistics must keep the counts of every sentence,
+ * see {@link WordSequenceAligner.SummaryStatistics#SummaryStatistics(boolean)}.
+ *
+ * <p>A resample draws as many sentences as the corpus has, with replacement, and computes the corpus error rate
+ * of the draw, i.e. its summed errors over its summed reference words. The per-sentence errors and reference lengths
+ * are packed into one long per sentence, so a draw touches memory once. Resamples are spread over a fork/join pool;
+ * every task gets its own {@link SplittableRandom} split off deterministically from the seed, so results only depend
+ * on the seed and not on the number of threads.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class ErrorRateBootstrap {
+
+    /** Resamples per leaf task */
+    private static final int LEAF_RESAMPLES = 64;
+
+    /** Errors in the upper, reference words in the lower 32 bits, one long per sentence */
+    private final long[] sentences;
+
+    /**
+     * Constructor.
+     * @param statistics per-sentence results of one system
+     * @throws IllegalArgumentException if the statistics do not keep sentences, or have no reference words,
+     * so that there is no error rate to resample
+     */
+    public ErrorRateBootstrap(WordSequenceAligner.SummaryStatistics statistics) {
+        sentences = pack(statistics);
+    }
+
+    /**
+     * Computes a percentile bootstrap confidence interval of the corpus error rate.
+     *
+     * @param resamples number of resamples, e.g. 10000
+     * @param confidence confidence level, e.g. 0.95
+     * @param seed seed of the random draws
+     * @param parallelism number of threads to resample on
+     * @return the confidence interval
+     */
+    public Interval confidenceInterval(int resamples, double confidence, long seed, int parallelism) {
+        double[] rates = new double[resamples];
+        run(new ResampleTask(sentences, null, rates, 0, resamples, new SplittableRandom(seed)), parallelism);
+        return Interval.of(rates, confidence, errorRate(sentences));
+    }
+
+    /**
+     * Paired bootstrap comparison of two systems on the same sentences: every resample draws the same sentences for both.
+     *
+     * @param a per-sentence results of the first system
+     * @param b per-sentence results of the second system, for the same sentences in the same order
+     * @param resamples number of resamples, e.g. 10000
+     * @param confidence confidence level of the interval of the difference, e.g. 0.95
+     * @param seed seed of the random draws
+     * @param parallelism number of threads to resample on
+     * @return the comparison
+     * @throws IllegalArgumentException if either statistics do not keep sentences or have no reference words,
+     * or if they are not about the same sentences
+     */
+    public static PairedResult pairedBootstrap(WordSequenceAligner.SummaryStatistics a, WordSequenceAligner.SummaryStatistics b,
+                                               int resamples, double confidence, long seed, int parallelism) {
+        long[] first = pack(a);
+        long[] second = pack(b);
+        if (first.length != second.length) {
+            throw new IllegalArgumentException();
+        }
+        for (int k = 0; k < first.length; k++) {
+            if ((int) first[k] != (int) second[k]) {
+                // Reference lengths differ, so the statistics are not about the same sentences
+                throw new IllegalArgumentException();
+            }
+        }
+
+        double[] differences = new double[resamples];
+        run(new ResampleTask(first, second, differences, 0, resamples, new SplittableRandom(seed)), parallelism);
+        int wins = 0;
+        for (double difference : differences) {
+            if (difference < 0) wins++;
+        }
+        double observed = errorRate(first) - errorRate(second);
+        return new PairedResult(Interval.of(differences, confidence, observed), wins / (double) resamples);
+    }
+
+    private static void run(ResampleTask task, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long[] pack(WordSequenceAligner.SummaryStatistics statistics) {
+        if (!statistics.keepsSentences()) {
+            throw new IllegalArgumentException();
+        }
+        if (statistics.getNumReferenceWords() == 0) {
+            // The error rate of the corpus, and of every resample, would be NaN
+            throw new IllegalArgumentException();
+        }
+        long[] packed = new long[statistics.getNumSentences()];
+        for (int k = 0; k < packed.length; k++) {
+            long errors = statistics.getSentenceSubstitutions(k) + statistics.getSentenceInsertions(k) + statistics.getSentenceDeletions(k);
+            packed[k] = errors << 32 | statistics.getSentenceReferenceWords(k);
+        }
+        return packed;
+    }
+
+    private static double errorRate(long[] sentences) {
+        long errors = 0;
+        long words = 0;
+        for (long sentence : sentences) {
+            errors += sentence >>> 32;
+            words += (int) sentence;
+        }
+        return errors / (double) words;
+    }
+
+    /**
+     * Computes a range of resamples, splitting it in halves with independent random generators.
+     * With a second system, each resample yields the difference of the error rates of the first and the second system.
+     */
+    private static final class ResampleTask extends RecursiveAction {
+        private final long[] first;
+        private final long[] second;
+        private final double[] results;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        ResampleTask(long[] first, long[] second, double[] results, int from, int to, SplittableRandom random) {
+            this.first = first;
+            this.second = second;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_RESAMPLES) {
+                for (int r = from; r < to; r++) {
+                    results[r] = second == null ? resample() : resamplePaired();
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            // The right half is split off before any draw, so the streams do not depend on scheduling
+            ResampleTask right = new ResampleTask(first, second, results, mid, to, random.split());
+            ResampleTask left = new ResampleTask(first, second, results, from, mid, random);
+            invokeAll(left, right);
+        }
+
+        private double resample() {
+            final int n = first.length;
+            long errors = 0;
+            long words = 0;
+            for (int k = 0; k < n; k++) {
+                long sentence = first[random.nextInt(n)];
+                errors += sentence >>> 32;
+                words += (int) sentence;
+            }
+            return errors / (double) words;
+        }
+
+        private double resamplePaired() {
+            final int n = first.length;
+            long errorsFirst = 0;
+            long errorsSecond = 0;
+            long words = 0;
+            for (int k = 0; k < n; k++) {
+                int index = random.nextInt(n);
+                long sentence = first[index];
+                errorsFirst += sentence >>> 32;
+                errorsSecond += second[index] >>> 32;
+                words += (int) sentence;
+            }
+            return (errorsFirst - errorsSecond) / (double) words;
+        }
+    }
+
+    /**
+     * Percentile interval of a bootstrapped quantity.
+     */
+    public static class Interval {
+        private final double estimate;
+        private final double lower;
+        private final double upper;
+        private final double confidence;
+
+        /**
+         * Constructor.
+         * @param estimate value on the whole corpus
+         * @param lower lower end of the interval
+         * @param upper upper end of the interval
+         * @param confidence confidence level of the interval
+         */
+        public Interval(double estimate, double lower, double upper, double confidence) {
+            this.estimate = estimate;
+            this.lower = lower;
+            this.upper = upper;
+            this.confidence = confidence;
+        }
+
+        static Interval of(double[] samples, double confidence, double estimate) {
+            if (samples.length == 0 || confidence <= 0 || confidence >= 1) {
+                throw new IllegalArgumentException();
+            }
+            Arrays.sort(samples);
+            double tail = (1 - confidence) / 2;
+            int lowerIndex = (int) Math.floor(tail * (samples.length - 1));
+            int upperIndex = (int) Math.ceil((1 - tail) * (samples.length - 1));
+            return new Interval(estimate, samples[lowerIndex], samples[upperIndex], confidence);
+        }
+
+        /** @return the value on the whole corpus */
+        public double getEstimate() {
+            return estimate;
+        }
+
+        /** @return the lower end of the interval */
+        public double getLower() {
+            return lower;
+        }
+
+        /** @return the upper end of the interval */
+        public double getUpper() {
+            return upper;
+        }
+
+        /** @return the confidence level of the interval */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return estimate + " [" + lower + ", " + upper + "] @ " + confidence;
+        }
+    }
+
+    /**
+     * Result of a paired bootstrap comparison of a first and a second system.
+     */
+    public static class PairedResult {
+        private final Interval difference;
+        private final double winRate;
+
+        /**
+         * Constructor.
+         * @param difference interval of the difference of the error rates
+         * @param winRate fraction of resamples in which the first system has the lower error rate
+         */
+        public PairedResult(Interval difference, double winRate) {
+            this.difference = difference;
+            this.winRate = winRate;
+        }
+
+        /** @return the interval of the error rate of the first system minus the error rate of the second */
+        public Interval getDifference() {
+            return difference;
+        }
+
+        /** @return the fraction of resamples in which the first system has the lower error rate */
+        public double getWinRate() {
+            return winRate;
+        }
+
+        /** @return the p-value of the hypothesis that the first system is not better than the second */
+        public double getPValue() {
+            return 1 - winRate;
+        }
+
+        @Override
+        public String toString() {
+            return "difference " + difference + ", p = " + getPValue();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Divide-and-conquer alignment of two interned word sequences in the spirit of Hirschberg (1975).
+ * Produces the same edit operations as the backtrace of {@link WordSequenceAligner#align(String[], String[])},
+ * including its tie-breaking, without holding the (n+1)&times;(m+1) backtrace matrix.
+ *
+ * <p>The table is split at its middle row. A forward pass over the lower half carries, for every cell, the point where
+ * its backtrace path leaves the lower half, which gives the column where the optimal path crosses the middle row.
+ * Both halves are then solved recursively, each with the exact costs of its top row and left column as boundary,
+ * so that every cell sees the same costs, and thus makes the same choice, as in the full table.
+ * Apart from small base cases, only a few rows and one column are held per recursion level.
+ * The two halves are independent and can be solved on different threads.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+final class HirschbergAligner {
+
+    /** Rectangles with at most this many cells are solved with a full backtrace matrix */
+    private static final int BASE_CASE_CELLS = 1 << 16;
+
+    /** Rectangles with at least this many cells solve their halves in parallel, when a pool is available */
+    private static final long PARALLEL_CELLS = 1L << 20;
+
+    private final int[] reference;
+    private final int[] hypothesis;
+    private final int substitutionPenalty;
+    private final int insertionPenalty;
+    private final int deletionPenalty;
+
+    HirschbergAligner(int[] reference, int[] hypothesis, int substitutionPenalty, int insertionPenalty, int deletionPenalty) {
+        this.reference = reference;
+        this.hypothesis = hypothesis;
+        this.substitutionPenalty = substitutionPenalty;
+        this.insertionPenalty = insertionPenalty;
+        this.deletionPenalty = deletionPenalty;
+    }
+
+    /**
+     * Computes the edit operations of the alignment.
+     *
+     * @param pool pool to solve independent halves on, or null to run on the calling thread only
+     * @return edit operations ({@link WordSequenceAligner#OK}, {@link WordSequenceAligner#SUB},
+     * {@link WordSequenceAligner#INS}, {@link WordSequenceAligner#DEL}) in sequence order
+     */
+    byte[] align(ForkJoinPool pool) {
+        final int n = reference.length;
+        final int m = hypothesis.length;
+        int[] top = new int[m + 1];
+        int[] left = new int[n + 1];
+        for (int j = 0; j <= m; j++) top[j] = insertionPenalty * j;
+        for (int i = 0; i <= n; i++) left[i] = deletionPenalty * i;
+
+        Rectangle whole = new Rectangle(0, n, 0, m, top, 0, left, 0);
+        Segment path = pool != null ? pool.invoke(new SolveTask(whole, true)) : solve(whole, false);
+
+        // The remaining path runs along the first row or the first column of the table.
+        if (path.exitRow == 0) {
+            for (int j = path.exitColumn; j > 0; j--) path.add(WordSequenceAligner.INS);
+        } else {
+            for (int i = path.exitRow; i > 0; i--) path.add(WordSequenceAligner.DEL);
+        }
+
+        byte[] ops = new byte[path.length];
+        for (int k = 0; k < path.length; k++) {
+            ops[k] = path.ops[path.length - 1 - k];
+        }
+        return ops;
+    }
+
+    /**
+     * Emits the backtrace of the bottom-right cell of a rectangle until it reaches the top row or left column.
+     */
+    private Segment solve(Rectangle r, boolean parallel) {
+        final int height = r.i1 - r.i0;
+        final int width = r.j1 - r.j0;
+        if (height == 0 || width == 0) {
+            return new Segment(r.i1, r.j1);
+        }
+        if (height == 1 || (long) height * width <= BASE_CASE_CELLS) {
+            return solveBaseCase(r);
+        }
+
+        final int mid = (r.i0 + r.i1) >>> 1;
+
+        // Costs of the middle row, from the top row of the rectangle downwards
+        int[] midRow = Arrays.copyOfRange(r.top, r.topOffset, r.topOffset + width + 1);
+        int[] next = new int[width + 1];
+        for (int i = r.i0 + 1; i <= mid; i++) {
+            next[0] = r.left[r.leftOffset + i - r.i0];
+            advance(midRow, next, i, r.j0, width, null, null);
+            int[] t = midRow; midRow = next; next = t;
+        }
+
+        // Lower half: every cell carries where its backtrace path leaves the lower half.
+        // A value e >= 0 is the middle row cell at column j0 + e, a value e < 0 the left column cell at row mid - e.
+        int[] prevCost = Arrays.copyOf(midRow, width + 1);
+        int[] curCost = next;
+        int[] prevExit = new int[width + 1];
+        int[] curExit = new int[width + 1];
+        for (int k = 0; k <= width; k++) prevExit[k] = k;
+        for (int i = mid + 1; i <= r.i1; i++) {
+            curCost[0] = r.left[r.leftOffset + i - r.i0];
+            curExit[0] = -(i - mid);
+            advance(prevCost, curCost, i, r.j0, width, prevExit, curExit);
+            int[] t;
+            t = prevCost; prevCost = curCost; curCost = t;
+            t = prevExit; prevExit = curExit; curExit = t;
+        }
+        final int exit = prevExit[width];
+
+        if (exit <= 0) {
+            // The path reaches the left column without crossing the middle row elsewhere; only the lower half is involved.
+            return solve(new Rectangle(mid, r.i1, r.j0, r.j1, midRow, 0, r.left, r.leftOffset + mid - r.i0), parallel);
+        }
+
+        // Costs of the crossing column in the lower half, which is the left boundary of the lower-right rectangle
+        final int crossing = exit;
+        int[] column = new int[r.i1 - mid + 1];
+        column[0] = midRow[crossing];
+        prevCost = Arrays.copyOf(midRow, crossing + 1);
+        curCost = new int[crossing + 1];
+        for (int i = mid + 1; i <= r.i1; i++) {
+            curCost[0] = r.left[r.leftOffset + i - r.i0];
+            advance(prevCost, curCost, i, r.j0, crossing, null, null);
+            column[i - mid] = curCost[crossing];
+            int[] t = prevCost; prevCost = curCost; curCost = t;
+        }
+
+        final int c = r.j0 + crossing;
+        Rectangle lower = new Rectangle(mid, r.i1, c, r.j1, midRow, crossing, column, 0);
+        Rectangle upper = new Rectangle(r.i0, mid, r.j0, c, r.top, r.topOffset, r.left, r.leftOffset);
+
+        Segment lowerPath, upperPath;
+        if (parallel && (long) height * width >= PARALLEL_CELLS) {
+            SolveTask lowerTask = new SolveTask(lower, true);
+            lowerTask.fork();
+            upperPath = solve(upper, true);
+            lowerPath = lowerTask.join();
+        } else {
+            lowerPath = solve(lower, parallel);
+            upperPath = solve(upper, parallel);
+        }
+
+        // The lower path may reach the crossing column below the middle row; it then climbs it with deletions.
+        for (int i = lowerPath.exitRow; i > mid; i--) {
+            lowerPath.add(WordSequenceAligner.DEL);
+        }
+        lowerPath.append(upperPath);
+        lowerPath.exitRow = upperPath.exitRow;
+        lowerPath.exitColumn = upperPath.exitColumn;
+        return lowerPath;
+    }
+
+    /**
+     * Computes one row of costs, and optionally propagates exit pointers, with the tie-breaking of the full table.
+     *
+     * @param prev costs of row i - 1 at columns j0..j0 + width
+     * @param cur costs of row i; cur[0] must already hold the left boundary
+     */
+    private void advance(int[] prev, int[] cur, int i, int j0, int width, int[] prevExit, int[] curExit) {
+        final int word = reference[i - 1];
+        for (int k = 1; k <= width; k++) {
+            int cs = prev[k - 1] + (word == hypothesis[j0 + k - 1] ? 0 : substitutionPenalty);
+            int ci = cur[k - 1] + insertionPenalty;
+            int cd = prev[k] + deletionPenalty;
+
+            int mincost = Math.min(cs, Math.min(ci, cd));
+            cur[k] = mincost;
+            if (prevExit != null) {
+                if (cs == mincost) {
+                    curExit[k] = prevExit[k - 1];
+                } else if (ci == mincost) {
+                    curExit[k] = curExit[k - 1];
+                } else {
+                    curExit[k] = prevExit[k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves a small rectangle with a full backtrace matrix.
+     */
+    private Segment solveBaseCase(Rectangle r) {
+        final int height = r.i1 - r.i0;
+        final int width = r.j1 - r.j0;
+        byte[] backtrace = new byte[height * width];
+        int[] prev = Arrays.copyOfRange(r.top, r.topOffset, r.topOffset + width + 1);
+        int[] cur = new int[width + 1];
+
+        for (int di = 1; di <= height; di++) {
+            final int i = r.i0 + di;
+            final int word = reference[i - 1];
+            cur[0] = r.left[r.leftOffset + di];
+            int row = (di - 1) * width;
+            for (int k = 1; k <= width; k++) {
+                boolean match = word == hypothesis[r.j0 + k - 1];
+                int cs = prev[k - 1] + (match ? 0 : substitutionPenalty);
+                int ci = cur[k - 1] + insertionPenalty;
+                int cd = prev[k] + deletionPenalty;
+
+                int mincost = Math.min(cs, Math.min(ci, cd));
+                cur[k] = mincost;
+                if (cs == mincost) {
+                    backtrace[row + k - 1] = match ? WordSequenceAligner.OK : WordSequenceAligner.SUB;
+                } else if (ci == mincost) {
+                    backtrace[row + k - 1] = WordSequenceAligner.INS;
+                } else {
+                    backtrace[row + k - 1] = WordSequenceAligner.DEL;
+                }
+            }
+            int[] t = prev; prev = cur; cur = t;
+        }
+
+        Segment path = new Segment(r.i1, r.j1);
+        int di = height;
+        int dj = width;
+        while (di > 0 && dj > 0) {
+            byte op = backtrace[(di - 1) * width + dj - 1];
+            path.add(op);
+            if (op != WordSequenceAligner.INS) di--;
+            if (op != WordSequenceAligner.DEL) dj--;
+        }
+        path.exitRow = r.i0 + di;
+        path.exitColumn = r.j0 + dj;
+        return path;
+    }
+
+    /**
+     * Rows (i0..i1] and columns (j0..j1] of the table, with the exact costs of row i0 and column j0.
+     * top[topOffset + j - j0] holds the cost of cell (i0, j) and left[leftOffset + i - i0] the cost of cell (i, j0).
+     */
+    private static final class Rectangle {
+        final int i0, i1, j0, j1;
+        final int[] top;
+        final int topOffset;
+        final int[] left;
+        final int leftOffset;
+
+        Rectangle(int i0, int i1, int j0, int j1, int[] top, int topOffset, int[] left, int leftOffset) {
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+            this.top = top;
+            this.topOffset = topOffset;
+            this.left = left;
+            this.leftOffset = leftOffset;
+        }
+    }
+
+    /**
+     * Edit operations of part of the path, in backtrace (reverse) order, and the cell where that part ends.
+     */
+    private static final class Segment {
+        byte[] ops = new byte[16];
+        int length;
+        int exitRow;
+        int exitColumn;
+
+        Segment(int exitRow, int exitColumn) {
+            this.exitRow = exitRow;
+            this.exitColumn = exitColumn;
+        }
+
+        void add(byte op) {
+            if (length == ops.length) {
+                ops = Arrays.copyOf(ops, length * 2);
+            }
+            ops[length++] = op;
+        }
+
+        void append(Segment other) {
+            if (length + other.length > ops.length) {
+                ops = Arrays.copyOf(ops, Math.max(length + other.length, length * 2));
+            }
+            System.arraycopy(other.ops, 0, ops, length, other.length);
+            length += other.length;
+        }
+    }
+
+    private final class SolveTask extends RecursiveTask<Segment> {
+        private final Rectangle rectangle;
+        private final boolean parallel;
+
+        SolveTask(Rectangle rectangle, boolean parallel) {
+            this.rectangle = rectangle;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Segment compute() {
+            return solve(rectangle, parallel);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Aligns a growing hypothesis against a fixed reference, e.g. the partial results of a streaming recognizer.
+ * The dynamic programming table of {@link WordSequenceAligner} is kept column by column, one column per hypothesis word,
+ * so appending a word only computes its column and revising the last k words only drops k columns.
+ * The resulting counts are identical to those of {@link WordSequenceAligner#alignCounts(String[], String[])}.
+ *
+ * <p>Only the most recent columns are kept. Rolling back further than that recomputes the table from the start.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class IncrementalAligner {
+
+    /** Number of trailing hypothesis words that can be revised cheaply by default */
+    public static final int DEFAULT_MAX_ROLLBACK = 32;
+
+    private final WordSequenceAligner aligner;
+    private final WordVocabulary vocabulary;
+    private final int[] reference;
+    private final int substitutionPenalty;
+    private final int insertionPenalty;
+    private final int deletionPenalty;
+
+    /** Ring of the most recent columns; column j lives in slot j % cost.length */
+    private final int[][] cost;
+    private final int[][] sub;
+    private final int[][] del;
+
+    /** Interned hypothesis words, needed to recompute columns that have left the ring */
+    private int[] hypothesis = new int[16];
+    private int hypothesisLength;
+
+    /** Index of the oldest column still held in the ring */
+    private int oldestColumn;
+
+    public IncrementalAligner(WordSequenceAligner aligner, String[] reference) {
+        this(aligner, reference, DEFAULT_MAX_ROLLBACK);
+    }
+
+    /**
+     * @param aligner aligner providing the penalties
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param maxRollback number of trailing hypothesis words that can be revised without recomputing the whole table
+     */
+    public IncrementalAligner(WordSequenceAligner aligner, String[] reference, int maxRollback) {
+        if (maxRollback < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.aligner = aligner;
+        this.vocabulary = new WordVocabulary();
+        this.reference = vocabulary.intern(reference);
+        this.substitutionPenalty = aligner.getSubstitutionPenalty();
+        this.insertionPenalty = aligner.getInsertionPenalty();
+        this.deletionPenalty = aligner.getDeletionPenalty();
+
+        // The columns within rollback reach, plus a spare one so that a new column never overwrites the one it is computed from
+        int slots = maxRollback + 2;
+        int height = this.reference.length + 1;
+        cost = new int[slots][height];
+        sub = new int[slots][height];
+        del = new int[slots][height];
+        reset();
+    }
+
+    /**
+     * Appends a word to the end of the hypothesis.
+     *
+     * @param word next hypothesis word; will be evaluated as lowercase.
+     */
+    public void append(String word) {
+        appendId(vocabulary.intern(word));
+    }
+
+    /**
+     * Appends words to the end of the hypothesis.
+     *
+     * @param words next hypothesis words; will be evaluated as lowercase.
+     */
+    public void append(String[] words) {
+        for (String word : words) {
+            append(word);
+        }
+    }
+
+    /**
+     * Removes the last words of the hypothesis.
+     *
+     * @param count number of words to remove
+     */
+    public void rollback(int count) {
+        if (count < 0 || count > hypothesisLength) {
+            throw new IllegalArgumentException();
+        }
+        int target = hypothesisLength - count;
+        if (target < oldestColumn) {
+            // The column to return to has been overwritten; replay the kept hypothesis prefix.
+            reset();
+            for (int j = 0; j < target; j++) {
+                computeColumn(j + 1, hypothesis[j]);
+            }
+        }
+        hypothesisLength = target;
+    }
+
+    /**
+     * Replaces the hypothesis by a new partial result.
+     * Only the words after the common prefix of the old and the new hypothesis are recomputed.
+     *
+     * @param text the whole current hypothesis; is split on whitespace and evaluated as lowercase.
+     */
+    public void update(String text) {
+        int[] words = vocabulary.tokenize(text);
+        int common = 0;
+        while (common < words.length && common < hypothesisLength && words[common] == hypothesis[common]) {
+            common++;
+        }
+        rollback(hypothesisLength - common);
+        for (int j = common; j < words.length; j++) {
+            appendId(words[j]);
+        }
+    }
+
+    /** @return number of words in the current hypothesis */
+    public int getHypothesisLength() {
+        return hypothesisLength;
+    }
+
+    /** @return the edit operation counts of aligning the current hypothesis to the reference */
+    public WordSequenceAligner.AlignmentCounts getCounts() {
+        int slot = hypothesisLength % cost.length;
+        int n = reference.length;
+        int numSub = sub[slot][n];
+        int numDel = del[slot][n];
+        int numIns = numDel + hypothesisLength - n;
+        return aligner.new AlignmentCounts(numSub, numIns, numDel, n, hypothesisLength);
+    }
+
+    /** @return the word error rate of the current hypothesis */
+    public float getWordErrorRate() {
+        return getCounts().getWordErrorRate();
+    }
+
+    private void reset() {
+        // Column 0 represents the case where all reference words are deleted.
+        int[] c = cost[0];
+        int[] s = sub[0];
+        int[] d = del[0];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = deletionPenalty * i;
+            s[i] = 0;
+            d[i] = i;
+        }
+        hypothesisLength = 0;
+        oldestColumn = 0;
+    }
+
+    private void appendId(int id) {
+        if (hypothesisLength == hypothesis.length) {
+            hypothesis = Arrays.copyOf(hypothesis, hypothesis.length * 2);
+        }
+        hypothesis[hypothesisLength] = id;
+        computeColumn(hypothesisLength + 1, id);
+        hypothesisLength++;
+    }
+
+    /**
+     * Computes column j (the alignment against the first j hypothesis words) from column j - 1.
+     * Ties are broken like in {@link WordSequenceAligner#align(String[], String[])}: substitution, then insertion, then deletion.
+     */
+    private void computeColumn(int j, int word) {
+        int slots = cost.length;
+        int[] prevCost = cost[(j - 1) % slots], curCost = cost[j % slots];
+        int[] prevSub = sub[(j - 1) % slots], curSub = sub[j % slots];
+        int[] prevDel = del[(j - 1) % slots], curDel = del[j % slots];
+
+        // Row 0 represents the case where all hypothesis words are inserted.
+        curCost[0] = insertionPenalty * j;
+        curSub[0] = 0;
+        curDel[0] = 0;
+
+        for (int i = 1; i < curCost.length; i++) {
+            boolean match = reference[i - 1] == word;
+            int cs = prevCost[i - 1] + (match ? 0 : substitutionPenalty);
+            int ci = prevCost[i] + insertionPenalty;
+            int cd = curCost[i - 1] + deletionPenalty;
+
+            int mincost = Math.min(cs, Math.min(ci, cd));
+            if (cs == mincost) {
+                curCost[i] = cs;
+                curSub[i] = prevSub[i - 1] + (match ? 0 : 1);
+                curDel[i] = prevDel[i - 1];
+            } else if (ci == mincost) {
+                curCost[i] = ci;
+                curSub[i] = prevSub[i];
+                curDel[i] = prevDel[i];
+            } else {
+                curCost[i] = cd;
+                curSub[i] = curSub[i - 1];
+                curDel[i] = curDel[i - 1] + 1;
+            }
+        }
+
+        oldestColumn = Math.max(oldestColumn, j - slots + 1);
+    }
+}
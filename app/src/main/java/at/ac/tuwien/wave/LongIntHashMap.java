@@ -0,0 +1,109 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int counts, with linear probing and no boxing.
+ * {@link Long#MIN_VALUE} marks free slots and cannot be used as a key.
+ * Slots are exposed by index so that callers can iterate over the entries without iterator objects.
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+final class LongIntHashMap {
+
+    static final long FREE = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    LongIntHashMap() {
+        this(64);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    /** Adds delta to the value of the key, which starts at 0 */
+    void addTo(long key, int delta) {
+        if (key == FREE) {
+            throw new IllegalArgumentException();
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    /** @return the value of the key, or 0 if it is absent */
+    int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** @return number of slots; slots whose {@link #keyAt(int)} is {@link #FREE} are empty */
+    int capacity() {
+        return keys.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads the packed ID pairs, whose low bits alone would cluster
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
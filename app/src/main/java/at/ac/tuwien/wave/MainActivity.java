@@ -19,6 +19,11 @@ import java.util.List;
 public class MainActivity extends AppCompatActivity {
 
     private static final int PERMISSIONS_REQUEST_CODE = 1;
+    private static final String GROUND_TRUTH = "the quick brown fox jumps over the lazy dog the dog yawned and " +
+            "catherine baked a cake for yelena's boston shake off car honks sounded " +
+            "through the green glassed window miss mississippi missed my message by a " +
+            "minute the plane flew under the bridge but the ship sailed through the sand";
+    private static final String[] GROUND_TRUTHS = {GROUND_TRUTH, GROUND_TRUTH.replace("shake off", "shake-off")};
     private final List<String> permissions = new ArrayList<>();
 
     private Vosk vosk;
@@ -125,7 +130,12 @@ public class MainActivity extends AppCompatActivity {
 
         });
         findViewById(R.id.wer).setOnClickListener(v -> {
-            String wer = "\nWER: " + calcWER(resultText.getText().toString());
+            String text = resultText.getText().toString();
+            String wer = "\nWER: " + calcWER(text);
+            if (androidSTT != null && androidSTT.getAlternatives().size() > 1
+                    && androidSTT.getAlternatives().get(0).equals(text)) {
+                wer += "\nOracle WER: " + calcOracleWER(androidSTT.getAlternatives());
+            }
             resultText.append(wer);
         });
         findViewById(R.id.ResultText).setOnClickListener(v -> {
@@ -239,24 +249,24 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Calculates the Word-Error-Rate using the WordSequenceAligner class by Brian Romanowski.
+     * Calculates the Word-Error-Rate against the closest of the accepted ground truths
+     * using the WordSequenceAligner class by Brian Romanowski.
      *
      * @Author: Christoph Winkler
      * @Author: Brian Romanowski
      * @Source: @Source: <a href="https://github.com/romanows/WordSequenceAligner">WordSequenceAligner on Github</a> (2021-11-18)
      */
     public float calcWER(String input) {
-        String groundTruth = "the quick brown fox jumps over the lazy dog the dog yawned and " +
-                "catherine baked a cake for yelena's boston shake off car honks sounded " +
-                "through the green glassed window miss mississippi missed my message by a " +
-                "minute the plane flew under the bridge but the ship sailed through the sand";
-
-        input = input.toLowerCase().replace(".", "");
-
-        String[] ref = groundTruth.split(" ");
-        String[] hyp = input.split(" ");
-        WordSequenceAligner.Alignment a = werEval.align(ref, hyp);
+        return werEval.wordErrorRate(GROUND_TRUTHS, input);
+    }
 
-        return ((float) (a.numSubstitutions + a.numInsertions + a.numDeletions)) / (float) a.getReferenceLength();
+    /**
+     * Calculates the oracle Word-Error-Rate, i.e. the lowest Word-Error-Rate of any of the N-best alternatives
+     * against any of the accepted ground truths, so it never exceeds the Word-Error-Rate of the best alternative.
+     *
+     * @Author: Christoph Winkler
+     */
+    public float calcOracleWER(List<String> alternatives) {
+        return werEval.oracleWordErrorRate(GROUND_TRUTHS, alternatives);
     }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package at.ac.tuwien.wave;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the lines of a file through a memory-mapped window, without copying them into the heap.
+ * The file is mapped in segments, so files beyond the 2 GB limit of a single mapping can be read; a line running
+ * over the end of a segment is read from a new segment starting at that line. Line terminators ("\n" or "\r\n")
+ * are not part of the line.
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+final class MappedLineReader implements Closeable {
+
+    /** Default number of bytes mapped at once */
+    private static final int SEGMENT = 64 << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private int segment = SEGMENT;
+
+    /** Position of the next line within the buffer */
+    private int position;
+
+    /** Range of the current line within the buffer */
+    private int lineStart;
+    private int lineEnd;
+
+    MappedLineReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        channel = file.getChannel();
+        size = channel.size();
+        map(0);
+    }
+
+    /**
+     * Advances to the next line.
+     * @return false at the end of the file
+     */
+    boolean nextLine() throws IOException {
+        if (bufferStart + position >= size) {
+            return false;
+        }
+        int end = indexOfNewline(position);
+        while (end < 0) {
+            if (bufferStart + buffer.limit() >= size) {
+                // Last line without terminator
+                end = buffer.limit();
+                break;
+            }
+            if (position == 0) {
+                // The line does not fit into a whole segment
+                segment = (int) Math.min(Integer.MAX_VALUE, segment * 2L);
+            }
+            map(bufferStart + position);
+            end = indexOfNewline(0);
+        }
+        lineStart = position;
+        lineEnd = end;
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        position = end + 1;
+        return true;
+    }
+
+    /** @return start of the current line within {@link #get(int)} positions */
+    int lineStart() {
+        return lineStart;
+    }
+
+    /** @return end (exclusive) of the current line within {@link #get(int)} positions */
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    /** @return the byte at a position of the current window */
+    byte get(int index) {
+        return buffer.get(index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is garbage collected
+        buffer = null;
+        file.close();
+    }
+
+    private void map(long start) throws IOException {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, segment));
+        position = 0;
+    }
+
+    private int indexOfNewline(int from) {
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,149 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Trie of a set of interned word sequences, walked in depth-first order.
+ * The walk visits the sequences sorted lexicographically, which is the preorder of their trie, and tells for each one
+ * how many leading words it shares with the sequence visited before. A dynamic programming table that is computed
+ * one row per word therefore only needs to compute the rows below the shared prefix: every node of the trie is evaluated
+ * once, no matter how many sequences pass through it. The walk also tells at which depths a sequence branches off for
+ * sequences visited later, so that only the rows at those depths need to be kept, at most one per sequence.
+ *
+ * @Author: Christoph Winkler
+ */
+final class SequenceTrie {
+
+    private final int[][] sequences;
+
+    /** Indices of the sequences in preorder */
+    private final int[] order;
+
+    /** Number of leading words the sequence at each preorder position shares with the one before it */
+    private final int[] sharedPrefix;
+
+    /** Depths, ascending, at which the sequence at each preorder position is the last one to pass before a later sequence branches off */
+    private final int[][] branchDepths;
+    private final int branchCount;
+
+    SequenceTrie(final int[][] sequences) {
+        this.sequences = sequences;
+        Integer[] sorted = new Integer[sequences.length];
+        for (int k = 0; k < sorted.length; k++) sorted[k] = k;
+        // Equal sequences keep their original order, so the first of several equal sequences is visited first
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareSequences(sequences[a], sequences[b]);
+            }
+        });
+
+        order = new int[sequences.length];
+        sharedPrefix = new int[sequences.length];
+        for (int k = 0; k < sorted.length; k++) {
+            order[k] = sorted[k];
+            int[] sequence = sequences[order[k]];
+            if (k > 0) {
+                sharedPrefix[k] = commonPrefix(sequences[order[k - 1]], sequence);
+            }
+        }
+
+        // A sequence sharing d > 0 words with its predecessor continues from the row at depth d of the last sequence
+        // before it that shares fewer than d words with its own predecessor; the first sequence shares none. A stack of
+        // positions with increasing shared prefixes finds it. The depths found for one sequence do not increase with
+        // the position of the later sequence, so equal ones are adjacent.
+        int[] from = new int[sequences.length];
+        int[] depthCount = new int[sequences.length];
+        int[] stack = new int[sequences.length];
+        int top = 0;
+        for (int k = 1; k < sorted.length; k++) {
+            while (top > 0 && sharedPrefix[stack[top - 1]] >= sharedPrefix[k]) {
+                top--;
+            }
+            from[k] = top > 0 ? stack[top - 1] : 0;
+            stack[top++] = k;
+            if (sharedPrefix[k] > 0) {
+                depthCount[from[k]]++;
+            }
+        }
+        branchDepths = new int[sequences.length][];
+        for (int k = 0; k < sorted.length; k++) {
+            branchDepths[k] = new int[depthCount[k]];
+            depthCount[k] = 0;
+        }
+        int count = 0;
+        for (int k = 1; k < sorted.length; k++) {
+            int d = sharedPrefix[k];
+            int[] depths = branchDepths[from[k]];
+            int n = depthCount[from[k]];
+            if (d > 0 && (n == 0 || depths[n - 1] != d)) {
+                depths[n] = d;
+                depthCount[from[k]] = n + 1;
+                count++;
+            }
+        }
+        for (int k = 0; k < sorted.length; k++) {
+            int[] depths = Arrays.copyOf(branchDepths[k], depthCount[k]);
+            for (int i = 0, j = depths.length - 1; i < j; i++, j--) {
+                int t = depths[i];
+                depths[i] = depths[j];
+                depths[j] = t;
+            }
+            branchDepths[k] = depths;
+        }
+        branchCount = count;
+    }
+
+    /** @return number of sequences, counting duplicates */
+    int size() {
+        return order.length;
+    }
+
+    /** @return index of the sequence visited at the given preorder position */
+    int sequenceAt(int position) {
+        return order[position];
+    }
+
+    /** @return number of leading words the sequence at the given preorder position shares with the one visited before */
+    int sharedPrefixAt(int position) {
+        return sharedPrefix[position];
+    }
+
+    /**
+     * @return depths, ascending, at which sequences visited later branch off the sequence at the given preorder position;
+     *         each of them continues from the row of that depth, as computed for this sequence
+     */
+    int[] branchDepthsAt(int position) {
+        return branchDepths[position];
+    }
+
+    /** @return number of rows kept at branch depths over the whole walk; less than the number of sequences */
+    int branchCount() {
+        return branchCount;
+    }
+
+    /** @return the sequence with the given index */
+    int[] get(int index) {
+        return sequences[index];
+    }
+
+    private static int compareSequences(int[] a, int[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int k = 0; k < length; k++) {
+            if (a[k] != b[k]) {
+                return a[k] < b[k] ? -1 : 1;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static int commonPrefix(int[] a, int[] b) {
+        int length = Math.min(a.length, b.length);
+        int k = 0;
+        while (k < length && a[k] == b[k]) {
+            k++;
+        }
+        return k;
+    }
+}
@@ -0,0 +1,201 @@
+package at.ac.tuwien.wave;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts-only alignment of two interned word sequences, with the dynamic programming table cut into square tiles
+ * that are computed wavefront by wavefront. All tiles on one anti-diagonal of the tile grid only depend on tiles of
+ * earlier anti-diagonals, so they run in parallel on a fork/join pool. The counts are identical to those of
+ * {@link WordSequenceAligner#alignCounts(int[], int[])}.
+ *
+ * <p>Tiles pass their borders on through arrays spanning the whole table: the bottom row of the last tile of each tile
+ * column, the right column of the last tile of each tile row, and the bottom-right cell of each tile, which is the
+ * top-left corner of the tile diagonally below it. Tiles of one anti-diagonal lie in different tile rows and columns,
+ * so they never write the same entries. Memory is linear in the sequence lengths.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+final class WavefrontAligner {
+
+    /** Number of words per tile side */
+    static final int TILE = 512;
+
+    private final int[] reference;
+    private final int[] hypothesis;
+    private final int substitutionPenalty;
+    private final int insertionPenalty;
+    private final int deletionPenalty;
+
+    /** Bottom row of the last computed tile of each tile column: cost, substitutions and insertions by hypothesis position */
+    private final int[] rowCost, rowSub, rowIns;
+
+    /** Right column of the last computed tile of each tile row, by reference position */
+    private final int[] columnCost, columnSub, columnIns;
+
+    /** Bottom-right cell of tile (bi, bj) at index bi - bj + tileColumns - 1 */
+    private final int[] cornerCost, cornerSub, cornerIns;
+
+    private final int tileRows;
+    private final int tileColumns;
+
+    WavefrontAligner(int[] reference, int[] hypothesis, int substitutionPenalty, int insertionPenalty, int deletionPenalty) {
+        this.reference = reference;
+        this.hypothesis = hypothesis;
+        this.substitutionPenalty = substitutionPenalty;
+        this.insertionPenalty = insertionPenalty;
+        this.deletionPenalty = deletionPenalty;
+
+        final int n = reference.length;
+        final int m = hypothesis.length;
+        tileRows = (n + TILE - 1) / TILE;
+        tileColumns = (m + TILE - 1) / TILE;
+
+        // First row: all hypothesis words inserted. First column: all reference words deleted.
+        rowCost = new int[m + 1];
+        rowSub = new int[m + 1];
+        rowIns = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            rowCost[j] = insertionPenalty * j;
+            rowIns[j] = j;
+        }
+        columnCost = new int[n + 1];
+        columnSub = new int[n + 1];
+        columnIns = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            columnCost[i] = deletionPenalty * i;
+        }
+        cornerCost = new int[tileRows + tileColumns];
+        cornerSub = new int[tileRows + tileColumns];
+        cornerIns = new int[tileRows + tileColumns];
+    }
+
+    /**
+     * Computes the whole table on the pool.
+     *
+     * @param pool pool to run the tiles of each wavefront on
+     * @return substitutions, insertions and deletions of the best alignment; both sequences must be non-empty
+     */
+    int[] alignCounts(ForkJoinPool pool) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                List<TileTask> wavefront = new ArrayList<>();
+                for (int d = 0; d < tileRows + tileColumns - 1; d++) {
+                    wavefront.clear();
+                    for (int bi = Math.max(0, d - tileColumns + 1); bi <= Math.min(tileRows - 1, d); bi++) {
+                        wavefront.add(new TileTask(bi, d - bi));
+                    }
+                    if (wavefront.size() == 1) {
+                        wavefront.get(0).compute();
+                    } else {
+                        invokeAll(wavefront);
+                    }
+                }
+            }
+        });
+
+        final int n = reference.length;
+        final int m = hypothesis.length;
+        int numIns = rowIns[m];
+        return new int[]{rowSub[m], numIns, numIns + n - m};
+    }
+
+    /**
+     * Computes rows (r0, r1] and columns (c0, c1] of the table from the borders left by the tiles above and to the left.
+     * Ties are broken like in {@link WordSequenceAligner#align(String[], String[])}: substitution, then insertion, then deletion.
+     */
+    private void computeTile(int bi, int bj) {
+        final int r0 = bi * TILE;
+        final int r1 = Math.min(reference.length, r0 + TILE);
+        final int c0 = bj * TILE;
+        final int c1 = Math.min(hypothesis.length, c0 + TILE);
+        final int width = c1 - c0;
+        final int corner = bi - bj + tileColumns - 1;
+
+        int[] prevCost = new int[width + 1], curCost = new int[width + 1];
+        int[] prevSub = new int[width + 1], curSub = new int[width + 1];
+        int[] prevIns = new int[width + 1], curIns = new int[width + 1];
+
+        // Top-left corner: on the first row or column of the table it is known, otherwise the tile diagonally above left it behind.
+        // The border arrays cannot be used there, the tiles before have already overwritten that entry.
+        if (bi == 0) {
+            prevCost[0] = insertionPenalty * c0;
+            prevSub[0] = 0;
+            prevIns[0] = c0;
+        } else if (bj == 0) {
+            prevCost[0] = deletionPenalty * r0;
+            prevSub[0] = 0;
+            prevIns[0] = 0;
+        } else {
+            prevCost[0] = cornerCost[corner];
+            prevSub[0] = cornerSub[corner];
+            prevIns[0] = cornerIns[corner];
+        }
+        System.arraycopy(rowCost, c0 + 1, prevCost, 1, width);
+        System.arraycopy(rowSub, c0 + 1, prevSub, 1, width);
+        System.arraycopy(rowIns, c0 + 1, prevIns, 1, width);
+
+        for (int i = r0 + 1; i <= r1; i++) {
+            curCost[0] = columnCost[i];
+            curSub[0] = columnSub[i];
+            curIns[0] = columnIns[i];
+            final int word = reference[i - 1];
+            for (int k = 1; k <= width; k++) {
+                boolean match = word == hypothesis[c0 + k - 1];
+                int cs = prevCost[k - 1] + (match ? 0 : substitutionPenalty);
+                int ci = curCost[k - 1] + insertionPenalty;
+                int cd = prevCost[k] + deletionPenalty;
+
+                int mincost = Math.min(cs, Math.min(ci, cd));
+                if (cs == mincost) {
+                    curCost[k] = cs;
+                    curSub[k] = prevSub[k - 1] + (match ? 0 : 1);
+                    curIns[k] = prevIns[k - 1];
+                } else if (ci == mincost) {
+                    curCost[k] = ci;
+                    curSub[k] = curSub[k - 1];
+                    curIns[k] = curIns[k - 1] + 1;
+                } else {
+                    curCost[k] = cd;
+                    curSub[k] = prevSub[k];
+                    curIns[k] = prevIns[k];
+                }
+            }
+            // Right column, for the tile to the right
+            columnCost[i] = curCost[width];
+            columnSub[i] = curSub[width];
+            columnIns[i] = curIns[width];
+
+            int[] t;
+            t = prevCost; prevCost = curCost; curCost = t;
+            t = prevSub; prevSub = curSub; curSub = t;
+            t = prevIns; prevIns = curIns; curIns = t;
+        }
+
+        // Bottom row, for the tile below, and bottom-right cell, for the tile diagonally below
+        System.arraycopy(prevCost, 1, rowCost, c0 + 1, width);
+        System.arraycopy(prevSub, 1, rowSub, c0 + 1, width);
+        System.arraycopy(prevIns, 1, rowIns, c0 + 1, width);
+        cornerCost[corner] = prevCost[width];
+        cornerSub[corner] = prevSub[width];
+        cornerIns[corner] = prevIns[width];
+    }
+
+    private final class TileTask extends RecursiveAction {
+        private final int bi;
+        private final int bj;
+
+        TileTask(int bi, int bj) {
+            this.bi = bi;
+            this.bj = bj;
+        }
+
+        @Override
+        protected void compute() {
+            computeTile(bi, bj);
+        }
+    }
+}
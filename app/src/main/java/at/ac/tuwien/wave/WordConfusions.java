@@ -0,0 +1,337 @@
+package at.ac.tuwien.wave;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts which words an engine confuses: substituted (reference word, hypothesis word) pairs, inserted hypothesis words
+ * and deleted reference words, over any number of alignments.
+ *
+ * <p>Words are interned and every event is counted in a {@link LongIntHashMap} under the packed pair of its word IDs,
+ * the reference ID in the upper and the hypothesis ID in the lower 32 bits, with -1 standing for the missing word
+ * of an insertion or deletion. Counting an edit script therefore allocates nothing once the map has grown.</p>
+ *
+ * <p>Instances are not thread-safe. Instances filled on different threads are combined with {@link #merge(WordConfusions)}.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class WordConfusions {
+
+    private static final int NONE = -1;
+
+    /** Kinds of confusion events */
+    private static final int SUBSTITUTIONS = 0, INSERTIONS = 1, DELETIONS = 2;
+
+    private final WordVocabulary vocabulary = new WordVocabulary();
+    private final LongIntHashMap counts = new LongIntHashMap();
+
+    /**
+     * Counts the errors of an edit script over two interned sentences.
+     *
+     * @param reference IDs of the reference words, interned by {@link #getVocabulary()}
+     * @param hypothesis IDs of the hypothesis words, interned by {@link #getVocabulary()}
+     * @param ops edit operations of aligning them, as produced by {@link WordSequenceAligner#alignOps(int[], int[])}
+     * @param length number of edit operations
+     */
+    public void add(int[] reference, int[] hypothesis, byte[] ops, int length) {
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < length; k++) {
+            switch (ops[k]) {
+                case WordSequenceAligner.OK: i++; j++; break;
+                case WordSequenceAligner.SUB: counts.addTo(key(reference[i++], hypothesis[j++]), 1); break;
+                case WordSequenceAligner.INS: counts.addTo(key(NONE, hypothesis[j++]), 1); break;
+                case WordSequenceAligner.DEL: counts.addTo(key(reference[i++], NONE), 1); break;
+            }
+        }
+    }
+
+    /**
+     * Aligns two sentences and counts the errors of the alignment.
+     *
+     * @param aligner aligner to align with
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     */
+    public void add(WordSequenceAligner aligner, String[] reference, String[] hypothesis) {
+        int[] ref = vocabulary.intern(reference);
+        int[] hyp = vocabulary.intern(hypothesis);
+        AlignerSession session = aligner.getSession();
+        int length = aligner.alignOps(ref, ref.length, hyp, hyp.length, session);
+        add(ref, hyp, session.script, length);
+    }
+
+    /**
+     * Counts the errors of an alignment result.
+     *
+     * @param alignment result of {@link WordSequenceAligner#align(String[], String[])}
+     */
+    public void add(WordSequenceAligner.Alignment alignment) {
+        for (int k = 0; k < alignment.reference.length; k++) {
+            String ref = alignment.reference[k];
+            String hyp = alignment.hypothesis[k];
+            if (ref == null) {
+                counts.addTo(key(NONE, vocabulary.intern(hyp)), 1);
+            } else if (hyp == null) {
+                counts.addTo(key(vocabulary.intern(ref), NONE), 1);
+            } else {
+                // Matching by ID applies the vocabulary's lowercasing, like the other overloads
+                int refId = vocabulary.intern(ref);
+                int hypId = vocabulary.intern(hyp);
+                if (refId != hypId) {
+                    counts.addTo(key(refId, hypId), 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds all counts of another instance; its words are mapped to the IDs of this instance.
+     * @param other confusions to add; is not modified
+     */
+    public void merge(WordConfusions other) {
+        LongIntHashMap otherCounts = other.counts;
+        for (int slot = 0; slot < otherCounts.capacity(); slot++) {
+            long key = otherCounts.keyAt(slot);
+            if (key != LongIntHashMap.FREE) {
+                int ref = translate(other, referenceId(key));
+                int hyp = translate(other, hypothesisId(key));
+                counts.addTo(key(ref, hyp), otherCounts.valueAt(slot));
+            }
+        }
+    }
+
+    /**
+     * Aligns a corpus on a fork/join pool and counts its confusions, one instance per task, merged as the tasks are joined.
+     *
+     * @param aligner aligner to align with
+     * @param references reference sentences
+     * @param hypotheses hypothesis sentences, with the same size as the references
+     * @param parallelism number of threads to align on
+     * @return the confusions of the corpus
+     */
+    public static WordConfusions collect(WordSequenceAligner aligner, List<String[]> references, List<String[]> hypotheses, int parallelism) {
+        if (references.size() != hypotheses.size() || parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int leafSize = Math.max(1, references.size() / (parallelism * 8));
+            return pool.invoke(new CollectTask(aligner, references, hypotheses, 0, references.size(), leafSize));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** @return the vocabulary the words are interned with */
+    public WordVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /** @return how often the reference word was recognized as the hypothesis word */
+    public int getSubstitutions(String referenceWord, String hypothesisWord) {
+        int ref = vocabulary.getId(referenceWord);
+        int hyp = vocabulary.getId(hypothesisWord);
+        return ref == NONE || hyp == NONE ? 0 : counts.get(key(ref, hyp));
+    }
+
+    /** @return how often the word was inserted */
+    public int getInsertions(String hypothesisWord) {
+        int hyp = vocabulary.getId(hypothesisWord);
+        return hyp == NONE ? 0 : counts.get(key(NONE, hyp));
+    }
+
+    /** @return how often the word was deleted */
+    public int getDeletions(String referenceWord) {
+        int ref = vocabulary.getId(referenceWord);
+        return ref == NONE ? 0 : counts.get(key(ref, NONE));
+    }
+
+    /**
+     * @return the k most frequent substitutions, most frequent first; equally frequent ones by reference word,
+     * then hypothesis word, in the order the words were first interned
+     */
+    public List<Confusion> topSubstitutions(int k) {
+        return top(k, SUBSTITUTIONS);
+    }
+
+    /** @return the k most frequently inserted words, most frequent first; equally frequent ones in the order they were first interned */
+    public List<Confusion> topInsertions(int k) {
+        return top(k, INSERTIONS);
+    }
+
+    /** @return the k most frequently deleted words, most frequent first; equally frequent ones in the order they were first interned */
+    public List<Confusion> topDeletions(int k) {
+        return top(k, DELETIONS);
+    }
+
+    /**
+     * Selects the k largest counts of one kind with a min-heap of (count, slot) pairs packed into longs.
+     * Slots follow the hash, so ties are broken by the key of the slot, i.e. by word IDs.
+     */
+    private List<Confusion> top(int k, int kind) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        long[] heap = new long[Math.min(k, counts.size())];
+        int heapSize = 0;
+        for (int slot = 0; slot < counts.capacity() && heap.length > 0; slot++) {
+            long key = counts.keyAt(slot);
+            if (key == LongIntHashMap.FREE || kindOf(key) != kind) {
+                continue;
+            }
+            long entry = (long) counts.valueAt(slot) << 32 | slot;
+            if (heapSize < heap.length) {
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            } else if (ranksBelow(heap[0], entry)) {
+                heap[0] = entry;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        Confusion[] result = new Confusion[heapSize];
+        while (heapSize > 0) {
+            long entry = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+            long key = counts.keyAt((int) entry);
+            int ref = referenceId(key);
+            int hyp = hypothesisId(key);
+            result[heapSize] = new Confusion(ref == NONE ? null : vocabulary.getWord(ref), hyp == NONE ? null : vocabulary.getWord(hyp),
+                    (int) (entry >>> 32));
+        }
+        List<Confusion> list = new ArrayList<>(result.length);
+        for (Confusion confusion : result) list.add(confusion);
+        return list;
+    }
+
+    /** @return true if the first heap entry has a lower count than the second, or the same count and a larger key */
+    private boolean ranksBelow(long a, long b) {
+        if (a >>> 32 != b >>> 32) {
+            return a < b;
+        }
+        return counts.keyAt((int) a) > counts.keyAt((int) b);
+    }
+
+    private void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBelow(heap[index], heap[parent])) {
+                return;
+            }
+            long t = heap[parent]; heap[parent] = heap[index]; heap[index] = t;
+            index = parent;
+        }
+    }
+
+    private void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && ranksBelow(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!ranksBelow(heap[child], heap[index])) {
+                return;
+            }
+            long t = heap[child]; heap[child] = heap[index]; heap[index] = t;
+            index = child;
+        }
+    }
+
+    private int translate(WordConfusions other, int id) {
+        return id == NONE ? NONE : vocabulary.intern(other.vocabulary.getWord(id));
+    }
+
+    private static long key(int referenceId, int hypothesisId) {
+        return (long) referenceId << 32 | (hypothesisId & 0xFFFFFFFFL);
+    }
+
+    private static int referenceId(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int hypothesisId(long key) {
+        return (int) key;
+    }
+
+    private static int kindOf(long key) {
+        if (referenceId(key) == NONE) {
+            return INSERTIONS;
+        }
+        return hypothesisId(key) == NONE ? DELETIONS : SUBSTITUTIONS;
+    }
+
+    /**
+     * A confused word pair and how often it occurred.
+     */
+    public static class Confusion {
+        /** Reference word, or null for an insertion */
+        public final String referenceWord;
+
+        /** Hypothesis word, or null for a deletion */
+        public final String hypothesisWord;
+
+        /** Number of occurrences */
+        public final int count;
+
+        /**
+         * Constructor.
+         * @param referenceWord reference word, or null for an insertion
+         * @param hypothesisWord hypothesis word, or null for a deletion
+         * @param count number of occurrences
+         */
+        public Confusion(String referenceWord, String hypothesisWord, int count) {
+            this.referenceWord = referenceWord;
+            this.hypothesisWord = hypothesisWord;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return referenceWord + " -> " + hypothesisWord + "\t" + count;
+        }
+    }
+
+    private static class CollectTask extends RecursiveTask<WordConfusions> {
+        private final WordSequenceAligner aligner;
+        private final List<String[]> references;
+        private final List<String[]> hypotheses;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        CollectTask(WordSequenceAligner aligner, List<String[]> references, List<String[]> hypotheses, int from, int to, int leafSize) {
+            this.aligner = aligner;
+            this.references = references;
+            this.hypotheses = hypotheses;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected WordConfusions compute() {
+            if (to - from <= leafSize) {
+                WordConfusions confusions = new WordConfusions();
+                for (int i = from; i < to; i++) {
+                    confusions.add(aligner, references.get(i), hypotheses.get(i));
+                }
+                return confusions;
+            }
+            int mid = (from + to) >>> 1;
+            CollectTask left = new CollectTask(aligner, references, hypotheses, from, mid, leafSize);
+            CollectTask right = new CollectTask(aligner, references, hypotheses, mid, to, leafSize);
+            right.fork();
+            WordConfusions confusions = left.compute();
+            confusions.merge(right.join());
+            return confusions;
+        }
+    }
+}
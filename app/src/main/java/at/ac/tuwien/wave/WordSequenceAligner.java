@@ -39,10 +39,13 @@ authors.
 package at.ac.tuwien.wave;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Computes the word error rate (WER) and other statistics available from an alignment of a hypothesis string and a reference string.
@@ -66,6 +69,18 @@ public class WordSequenceAligner {
      * From edu.cmu.sphinx.util.NISTAlign, which should be referencing the NIST sclite utility settings. */
     public static final int DEFAULT_DELETION_PENALTY = 75;
 
+    /** Edit operation of an aligned word pair that matches */
+    public static final byte OK = 0;
+
+    /** Edit operation of an aligned word pair that does not match */
+    public static final byte SUB = 1;
+
+    /** Edit operation of a hypothesis word with no reference counterpart */
+    public static final byte INS = 2;
+
+    /** Edit operation of a reference word with no hypothesis counterpart */
+    public static final byte DEL = 3;
+
     /** Substitution penalty for reference-hypothesis string alignment */
     private final int substitutionPenalty;
 
@@ -75,6 +90,17 @@ public class WordSequenceAligner {
     /** Deletion penalty for reference-hypothesis string alignment */
     private final int deletionPenalty;
 
+    /** Cost of cells outside the band of {@link #alignCountsBanded(int[], int[], int)}; low enough that adding a penalty cannot overflow */
+    private static final int BANDED_UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    /** Per-thread sessions holding the scratch buffers of the kernels, reused across calls */
+    private final ThreadLocal<AlignerSession> sessions = new ThreadLocal<AlignerSession>() {
+        @Override
+        protected AlignerSession initialValue() {
+            return new AlignerSession(WordSequenceAligner.this);
+        }
+    };
+
 
     /**
      * Result of an alignment.
@@ -233,6 +259,140 @@ public class WordSequenceAligner {
     }
 
 
+    /**
+     * Edit operation counts of an alignment, without the aligned word sequences.
+     * Produced by {@link #alignCounts(String[], String[])} when only the error rates are of interest.
+     */
+    public class AlignmentCounts {
+        /** Number of word substitutions made in the hypothesis with respect to the reference */
+        public final int numSubstitutions;
+
+        /** Number of word insertions (unnecessary words present) in the hypothesis with respect to the reference */
+        public final int numInsertions;
+
+        /** Number of word deletions (necessary words missing) in the hypothesis with respect to the reference */
+        public final int numDeletions;
+
+        /** Length of the original reference sequence */
+        private final int referenceLength;
+
+        /** Length of the original hypothesis sequence */
+        private final int hypothesisLength;
+
+
+        /**
+         * Constructor.
+         * @param numSubstitutions Number of word substitutions made in the hypothesis with respect to the reference
+         * @param numInsertions Number of word insertions (unnecessary words present) in the hypothesis with respect to the reference
+         * @param numDeletions Number of word deletions (necessary words missing) in the hypothesis with respect to the reference
+         * @param referenceLength length of the original reference sequence
+         * @param hypothesisLength length of the original hypothesis sequence
+         */
+        public AlignmentCounts(int numSubstitutions, int numInsertions, int numDeletions, int referenceLength, int hypothesisLength) {
+            if(numSubstitutions < 0 || numInsertions < 0 || numDeletions < 0
+                    || numSubstitutions + numDeletions > referenceLength || numSubstitutions + numInsertions > hypothesisLength) {
+                throw new IllegalArgumentException();
+            }
+            this.numSubstitutions = numSubstitutions;
+            this.numInsertions = numInsertions;
+            this.numDeletions = numDeletions;
+            this.referenceLength = referenceLength;
+            this.hypothesisLength = hypothesisLength;
+        }
+
+        /**
+         * Number of word correct words in the aligned hypothesis with respect to the reference.
+         * @return number of word correct words
+         */
+        public int getNumCorrect() {
+            return hypothesisLength - (numSubstitutions + numInsertions);
+        }
+
+        /** @return true when the hypothesis exactly matches the reference */
+        public boolean isSentenceCorrect() {
+            return numSubstitutions == 0 && numInsertions == 0 && numDeletions == 0;
+        }
+
+        /** @return the length of the original reference sequence */
+        public int getReferenceLength() {
+            return referenceLength;
+        }
+
+        /** @return the length of the original hypothesis sequence */
+        public int getHypothesisLength() {
+            return hypothesisLength;
+        }
+
+        /** @return the word error rate of this alignment */
+        public float getWordErrorRate() {
+            return (numSubstitutions + numInsertions + numDeletions) / (float) referenceLength;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("# ref").append("\t");
+            sb.append("# hyp").append("\t");
+            sb.append("# cor").append("\t");
+            sb.append("# sub").append("\t");
+            sb.append("# ins").append("\t");
+            sb.append("# del").append("\t");
+            sb.append("WER").append("\t");
+            sb.append("\n");
+
+            sb.append(referenceLength).append("\t");
+            sb.append(hypothesisLength).append("\t");
+            sb.append(getNumCorrect()).append("\t");
+            sb.append(numSubstitutions).append("\t");
+            sb.append(numInsertions).append("\t");
+            sb.append(numDeletions).append("\t");
+            sb.append(getWordErrorRate());
+            return sb.toString();
+        }
+    }
+
+
+    /**
+     * Best hypothesis of an N-best list, as found by {@link #alignNBest(String[], List)}.
+     */
+    public class NBestResult {
+        /** Index of the best hypothesis in the N-best list */
+        private final int index;
+
+        /** Edit operation counts of aligning the best hypothesis to the reference */
+        private final AlignmentCounts counts;
+
+        /**
+         * Constructor.
+         * @param index index of the best hypothesis in the N-best list
+         * @param counts edit operation counts of aligning the best hypothesis to the reference
+         */
+        public NBestResult(int index, AlignmentCounts counts) {
+            this.index = index;
+            this.counts = counts;
+        }
+
+        /** @return the index of the best hypothesis in the N-best list */
+        public int getIndex() {
+            return index;
+        }
+
+        /** @return the edit operation counts of the best hypothesis */
+        public AlignmentCounts getCounts() {
+            return counts;
+        }
+
+        /** @return the oracle word error rate, i.e. the word error rate of the best hypothesis */
+        public float getWordErrorRate() {
+            return counts.getWordErrorRate();
+        }
+    }
+
+
     /**
      * Collects several alignment results.
      * Has a {@link #toString()} method that pretty-prints a human-readable summary metrics for the collection of results.
@@ -264,12 +424,41 @@ public class WordSequenceAligner {
         /** Number of sentences */
         private int numSentences;
 
+        /** Whether the counts of every sentence are kept in addition to the totals */
+        private final boolean keepSentences;
+
+        /** Substitutions, insertions, deletions and reference length of every sentence, four ints per sentence, in the order of adding; null unless kept */
+        private int [] sentenceCounts;
+
+
+        /**
+         * Constructor.
+         * Creates an empty collection to which results are added via {@link #add(Alignment)} or {@link #add(AlignmentCounts)}.
+         * Only the totals are kept, so adding takes constant memory.
+         */
+        public SummaryStatistics() {
+            this(false);
+        }
+
+        /**
+         * Constructor.
+         * Creates an empty collection that can keep the counts of every sentence, four ints per sentence,
+         * as needed by {@link ErrorRateBootstrap}.
+         * @param keepSentences whether to keep the counts of every sentence
+         */
+        public SummaryStatistics(boolean keepSentences) {
+            this.keepSentences = keepSentences;
+            if(keepSentences) {
+                sentenceCounts = new int[4 * 16];
+            }
+        }
 
         /**
          * Constructor.
          * @param alignments collection of alignments
          */
         public SummaryStatistics(Collection<Alignment> alignments) {
+            this(false);
             for(Alignment a : alignments) {
                 add(a);
             }
@@ -280,20 +469,118 @@ public class WordSequenceAligner {
          * @param alignment result to add
          */
         public void add(Alignment alignment) {
-            numCorrect += alignment.getNumCorrect();
-            numSubstitutions += alignment.numSubstitutions;
-            numInsertions += alignment.numInsertions;
-            numDeletions += alignment.numDeletions;
-            numSentenceCorrect += alignment.isSentenceCorrect() ? 1 : 0;
-            numReferenceWords += alignment.getReferenceLength();
-            numHypothesisWords += alignment.getHypothesisLength();
+            add(alignment.numSubstitutions, alignment.numInsertions, alignment.numDeletions, alignment.getReferenceLength(), alignment.getHypothesisLength());
+        }
+
+        /**
+         * Add a new counts-only alignment result
+         * @param counts result to add
+         */
+        public void add(AlignmentCounts counts) {
+            add(counts.numSubstitutions, counts.numInsertions, counts.numDeletions, counts.getReferenceLength(), counts.getHypothesisLength());
+        }
+
+        /**
+         * Add a new counts-only alignment result given as plain numbers, as produced by an {@link AlignerSession}
+         * @param numSubstitutions number of word substitutions
+         * @param numInsertions number of word insertions
+         * @param numDeletions number of word deletions
+         * @param referenceLength length of the reference sequence
+         * @param hypothesisLength length of the hypothesis sequence
+         */
+        public void add(int numSubstitutions, int numInsertions, int numDeletions, int referenceLength, int hypothesisLength) {
+            numCorrect += hypothesisLength - (numSubstitutions + numInsertions);
+            this.numSubstitutions += numSubstitutions;
+            this.numInsertions += numInsertions;
+            this.numDeletions += numDeletions;
+            numSentenceCorrect += numSubstitutions == 0 && numInsertions == 0 && numDeletions == 0 ? 1 : 0;
+            numReferenceWords += referenceLength;
+            numHypothesisWords += hypothesisLength;
+
+            if(keepSentences) {
+                if(sentenceCounts.length < 4 * (numSentences + 1)) {
+                    sentenceCounts = Arrays.copyOf(sentenceCounts, sentenceCounts.length * 2);
+                }
+                int k = 4 * numSentences;
+                sentenceCounts[k] = numSubstitutions;
+                sentenceCounts[k+1] = numInsertions;
+                sentenceCounts[k+2] = numDeletions;
+                sentenceCounts[k+3] = referenceLength;
+            }
             numSentences++;
         }
 
+        /**
+         * Add all results collected by another instance.
+         * Instances filled independently, e.g. one per thread, can be combined this way without locking.
+         * If sentences are kept, the sentences of the other instance follow the sentences of this one.
+         * @param other statistics to add; is not modified
+         * @throws IllegalArgumentException if this instance keeps sentences and the other one does not
+         */
+        public void merge(SummaryStatistics other) {
+            if(keepSentences) {
+                if(!other.keepSentences) {
+                    throw new IllegalArgumentException();
+                }
+                int length = 4 * (numSentences + other.numSentences);
+                if(sentenceCounts.length < length) {
+                    sentenceCounts = Arrays.copyOf(sentenceCounts, Math.max(length, sentenceCounts.length * 2));
+                }
+                System.arraycopy(other.sentenceCounts, 0, sentenceCounts, 4 * numSentences, 4 * other.numSentences);
+            }
+
+            numCorrect += other.numCorrect;
+            numSubstitutions += other.numSubstitutions;
+            numInsertions += other.numInsertions;
+            numDeletions += other.numDeletions;
+            numSentenceCorrect += other.numSentenceCorrect;
+            numReferenceWords += other.numReferenceWords;
+            numHypothesisWords += other.numHypothesisWords;
+            numSentences += other.numSentences;
+        }
+
         public int getNumSentences() {
             return numSentences;
         }
 
+        /** @return true if the counts of every sentence are kept, see {@link #SummaryStatistics(boolean)} */
+        public boolean keepsSentences() {
+            return keepSentences;
+        }
+
+        /**
+         * @return number of substitutions of the given sentence, counted in the order the sentences were added
+         * @throws IllegalStateException if sentences are not kept
+         */
+        public int getSentenceSubstitutions(int sentence) {
+            return sentenceCount(sentence, 0);
+        }
+
+        /** @return number of insertions of the given sentence */
+        public int getSentenceInsertions(int sentence) {
+            return sentenceCount(sentence, 1);
+        }
+
+        /** @return number of deletions of the given sentence */
+        public int getSentenceDeletions(int sentence) {
+            return sentenceCount(sentence, 2);
+        }
+
+        /** @return number of reference words of the given sentence */
+        public int getSentenceReferenceWords(int sentence) {
+            return sentenceCount(sentence, 3);
+        }
+
+        private int sentenceCount(int sentence, int field) {
+            if(!keepSentences) {
+                throw new IllegalStateException();
+            }
+            if(sentence < 0 || sentence >= numSentences) {
+                throw new IndexOutOfBoundsException();
+            }
+            return sentenceCounts[4 * sentence + field];
+        }
+
         public int getNumReferenceWords() {
             return numReferenceWords;
         }
@@ -382,6 +669,35 @@ public class WordSequenceAligner {
     }
 
 
+    /** @return substitution penalty for reference-hypothesis string alignment */
+    public int getSubstitutionPenalty() {
+        return substitutionPenalty;
+    }
+
+
+    /** @return insertion penalty for reference-hypothesis string alignment */
+    public int getInsertionPenalty() {
+        return insertionPenalty;
+    }
+
+
+    /** @return deletion penalty for reference-hypothesis string alignment */
+    public int getDeletionPenalty() {
+        return deletionPenalty;
+    }
+
+
+    /**
+     * Returns the session of the calling thread, which holds the scratch buffers of all alignments made by this thread
+     * through this aligner. Threads therefore never share buffers, and each one stops allocating once its buffers have
+     * grown to the longest sentences it has seen.
+     * @return the session of the calling thread; must not be handed to other threads
+     */
+    public AlignerSession getSession() {
+        return sessions.get();
+    }
+
+
     /**
      * Produce alignment results for several pairs of sentences.
      * @see #align(String[], String[])
@@ -407,6 +723,155 @@ public class WordSequenceAligner {
     }
 
 
+    /**
+     * Produce alignment results for several pairs of sentences on a fork/join pool.
+     * The results are identical to, and in the same order as, those of {@link #align(List, List)}.
+     * @see #align(String[], String[])
+     * @param references reference sentences to align with the given hypotheses
+     * @param hypotheses hypothesis sentences to align with the given references
+     * @param parallelism number of worker threads to align with
+     * @return collection of per-sentence alignment results
+     */
+    public List<Alignment> align(List<String []> references, List<String []> hypotheses, int parallelism) {
+        if(references.size() != hypotheses.size() || parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        Alignment [] alignments = new Alignment[references.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new AlignTask(references, hypotheses, alignments, 0, alignments.length, leafSize(alignments.length, parallelism)));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Alignment> result = new ArrayList<WordSequenceAligner.Alignment>(alignments.length);
+        for(Alignment a : alignments) {
+            result.add(a);
+        }
+        return result;
+    }
+
+
+    /**
+     * Collect the counts-only alignment results of several pairs of sentences on a fork/join pool.
+     * Each task accumulates its own {@link SummaryStatistics}, which are merged when the tasks are joined.
+     * @see #alignCounts(String[], String[])
+     * @param references reference sentences to align with the given hypotheses
+     * @param hypotheses hypothesis sentences to align with the given references
+     * @param parallelism number of worker threads to align with
+     * @return summary of all per-sentence results
+     */
+    public SummaryStatistics alignCounts(List<String []> references, List<String []> hypotheses, int parallelism) {
+        return alignCounts(references, hypotheses, parallelism, false);
+    }
+
+
+    /**
+     * Collect the counts-only alignment results of several pairs of sentences on a fork/join pool.
+     * @see #alignCounts(List, List, int)
+     * @param references reference sentences to align with the given hypotheses
+     * @param hypotheses hypothesis sentences to align with the given references
+     * @param parallelism number of worker threads to align with
+     * @param keepSentences whether the summary keeps the counts of every sentence, e.g. for {@link ErrorRateBootstrap}
+     * @return summary of all per-sentence results
+     */
+    public SummaryStatistics alignCounts(List<String []> references, List<String []> hypotheses, int parallelism, boolean keepSentences) {
+        if(references.size() != hypotheses.size() || parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new CountsTask(references, hypotheses, 0, references.size(), leafSize(references.size(), parallelism), keepSentences));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /** Splits the work into a few chunks per worker, so that uneven sentence lengths still balance out. */
+    private static int leafSize(int size, int parallelism) {
+        return Math.max(1, size / (parallelism * 8));
+    }
+
+
+    /**
+     * Aligns a range of sentence pairs, writing each result to its index in the output array.
+     */
+    private class AlignTask extends RecursiveAction {
+        private final List<String []> references;
+        private final List<String []> hypotheses;
+        private final Alignment [] alignments;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        AlignTask(List<String []> references, List<String []> hypotheses, Alignment [] alignments, int from, int to, int leafSize) {
+            this.references = references;
+            this.hypotheses = hypotheses;
+            this.alignments = alignments;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= leafSize) {
+                for(int i=from; i<to; i++) {
+                    alignments[i] = align(references.get(i), hypotheses.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new AlignTask(references, hypotheses, alignments, from, mid, leafSize),
+                    new AlignTask(references, hypotheses, alignments, mid, to, leafSize));
+        }
+    }
+
+
+    /**
+     * Accumulates the counts-only results of a range of sentence pairs into statistics private to the task.
+     */
+    private class CountsTask extends RecursiveTask<SummaryStatistics> {
+        private final List<String []> references;
+        private final List<String []> hypotheses;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final boolean keepSentences;
+
+        CountsTask(List<String []> references, List<String []> hypotheses, int from, int to, int leafSize, boolean keepSentences) {
+            this.references = references;
+            this.hypotheses = hypotheses;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.keepSentences = keepSentences;
+        }
+
+        @Override
+        protected SummaryStatistics compute() {
+            if(to - from <= leafSize) {
+                SummaryStatistics statistics = new SummaryStatistics(keepSentences);
+                AlignerSession session = getSession();
+                for(int i=from; i<to; i++) {
+                    session.add(statistics, references.get(i), hypotheses.get(i));
+                }
+                return statistics;
+            }
+            int mid = (from + to) >>> 1;
+            CountsTask left = new CountsTask(references, hypotheses, from, mid, leafSize, keepSentences);
+            CountsTask right = new CountsTask(references, hypotheses, mid, to, leafSize, keepSentences);
+            right.fork();
+            SummaryStatistics statistics = left.compute();
+            statistics.merge(right.join());
+            return statistics;
+        }
+    }
+
+
     /**
      * Produces {@link Alignment} results from the alignment of the hypothesis words to the reference words.
      * Alignment is done via weighted string edit distance according to {@link #substitutionPenalty}, {@link #insertionPenalty}, {@link #deletionPenalty}.
@@ -416,90 +881,771 @@ public class WordSequenceAligner {
      * @return results of aligning the hypothesis to the reference
      */
     public Alignment align(String [] reference, String [] hypothesis) {
-        // Values representing string edit operations in the backtrace matrix
-        final int OK = 0;
-        final int SUB = 1;
-        final int INS = 2;
-        final int DEL = 3;
+        return buildAlignment(reference, hypothesis, alignOps(reference, hypothesis));
+    }
 
-        /*
-         * Next up is our dynamic programming tables that track the string edit distance calculation.
-         * The row address corresponds to an index within the sequence of reference words.
-         * The column address corresponds to an index within the sequence of hypothesis words.
-         * cost[0][0] addresses the beginning of two word sequences, and thus always has a cost of zero.
-         */
 
-        /** cost[3][2] is the minimum alignment cost when aligning the first two words of the reference to the first word of the hypothesis */
-        int [][] cost = new int[reference.length + 1][hypothesis.length + 1];
+    /**
+     * Produces the edit script of the alignment of the hypothesis words to the reference words, without materializing
+     * the aligned word sequences. The script is the one {@link #align(String[], String[])} is built from.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return edit operations {@link #OK}, {@link #SUB}, {@link #INS} and {@link #DEL} in sequence order
+     */
+    public byte [] alignOps(String [] reference, String [] hypothesis) {
+        // Words are lowercased and mapped to IDs once, so that the inner loop only compares primitives
+        WordVocabulary vocabulary = new WordVocabulary();
+        return alignOps(vocabulary.intern(reference), vocabulary.intern(hypothesis));
+    }
+
 
-        /**
-         * backtrace[3][2] gives information about the string edit operation that produced the minimum cost alignment between the first two words of the reference to the first word of the hypothesis.
-         * If a deletion operation is the minimum cost operation, then we say that the best way to get to hyp[1] is by deleting ref[2].
-         */
-        int [][] backtrace = new int[reference.length + 1][hypothesis.length + 1];
+    /**
+     * Produces the edit script of the alignment of two interned word sequences.
+     * Only two rows of costs are kept; the backtrace stores each edit operation in two bits, packed 32 to a long,
+     * which is a sixteenth of an int matrix.
+     *
+     * @param reference IDs of the words of the true sentence
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the reference
+     * @return edit operations {@link #OK}, {@link #SUB}, {@link #INS} and {@link #DEL} in sequence order
+     */
+    public byte [] alignOps(int [] reference, int [] hypothesis) {
+        AlignerSession session = getSession();
+        int length = alignOps(reference, reference.length, hypothesis, hypothesis.length, session);
+        return Arrays.copyOf(session.script, length);
+    }
 
-        // Initialization
-        cost[0][0] = 0;
-        backtrace[0][0] = OK;
 
-        // First column represents the case where we achieve zero hypothesis words by deleting all reference words.
-        for(int i=1; i<cost.length; i++) {
-            cost[i][0] = deletionPenalty * i;
-            backtrace[i][0] = DEL;
-        }
+    /**
+     * Kernel of {@link #alignOps(int[], int[])} working on the first n and m IDs of the given arrays and on the buffers of a session.
+     * @return number of edit operations, which are left at the start of {@link AlignerSession#script}
+     */
+    int alignOps(int [] reference, final int n, int [] hypothesis, final int m, AlignerSession session) {
+        final long rowStride = m + 1;
+
+        /*
+         * backtrace cell (i, j) gives the string edit operation that produced the minimum cost alignment between the first i words
+         * of the reference and the first j words of the hypothesis. The first row and column are implicit insertions and deletions.
+         */
+        long [] backtrace = session.clearBacktrace((int) (((n + 1) * rowStride + 31) >>> 5));
+        session.ensureRowCapacity(m + 1);
+        int [] prevCost = session.prevCost;
+        int [] curCost = session.curCost;
 
         // First row represents the case where we achieve the hypothesis by inserting all hypothesis words into a zero-length reference.
-        for(int j=1; j<cost[0].length; j++) {
-            cost[0][j] = insertionPenalty * j;
-            backtrace[0][j] = INS;
-        }
-
-        // For each next column, go down the rows, recording the min cost edit operation (and the cumulative cost).
-        for(int i=1; i<cost.length; i++) {
-            for(int j=1; j<cost[0].length; j++) {
-                int subOp, cs;  // it is a substitution if the words aren't equal, but if they are, no penalty is assigned.
-                if(reference[i-1].toLowerCase().equals(hypothesis[j-1].toLowerCase())) {
-                    subOp = OK;
-                    cs = cost[i-1][j-1];
+        prevCost[0] = 0;
+        for(int j=1; j<=m; j++) {
+            prevCost[j] = insertionPenalty * j;
+        }
+
+        // For each next row, go along the columns, recording the min cost edit operation.
+        for(int i=1; i<=n; i++) {
+            // First column represents the case where we achieve zero hypothesis words by deleting all reference words.
+            curCost[0] = deletionPenalty * i;
+            final int word = reference[i-1];
+            final long rowStart = i * rowStride;
+            for(int j=1; j<=m; j++) {
+                long op;  // it is a substitution if the words aren't equal, but if they are, no penalty is assigned.
+                int cs;
+                if(word == hypothesis[j-1]) {
+                    op = OK;
+                    cs = prevCost[j-1];
                 } else {
-                    subOp = SUB;
-                    cs = cost[i-1][j-1] + substitutionPenalty;
+                    op = SUB;
+                    cs = prevCost[j-1] + substitutionPenalty;
                 }
-                int ci = cost[i][j-1] + insertionPenalty;
-                int cd = cost[i-1][j] + deletionPenalty;
+                int ci = curCost[j-1] + insertionPenalty;
+                int cd = prevCost[j] + deletionPenalty;
 
                 int mincost = Math.min(cs, Math.min(ci, cd));
                 if(cs == mincost) {
-                    cost[i][j] = cs;
-                    backtrace[i][j] = subOp;
+                    curCost[j] = cs;
                 } else if(ci == mincost) {
-                    cost[i][j] = ci;
-                    backtrace[i][j] = INS;
+                    curCost[j] = ci;
+                    op = INS;
                 } else {
-                    cost[i][j] = cd;
-                    backtrace[i][j] = DEL;
+                    curCost[j] = cd;
+                    op = DEL;
                 }
+                long cell = rowStart + j;
+                backtrace[(int) (cell >>> 5)] |= op << ((cell & 31) << 1);
             }
+            int [] t = prevCost; prevCost = curCost; curCost = t;
         }
 
-        // Now that we have the minimal costs, find the lowest cost edit to create the hypothesis sequence
-        LinkedList<String> alignedReference = new LinkedList<String>();
-        LinkedList<String> alignedHypothesis = new LinkedList<String>();
+        // Now that we have the minimal costs, trace the lowest cost edits back from the end, then move them to the front
+        byte [] script = session.ensureScriptCapacity(n + m);
+        int k = n + m;
+        int i = n;
+        int j = m;
+        while(i > 0 || j > 0) {
+            byte op;
+            if(i == 0) {
+                op = INS;
+            } else if(j == 0) {
+                op = DEL;
+            } else {
+                long cell = i * rowStride + j;
+                op = (byte) ((backtrace[(int) (cell >>> 5)] >>> ((cell & 31) << 1)) & 3);
+            }
+            script[--k] = op;
+            if(op != INS) i--;
+            if(op != DEL) j--;
+        }
+        int length = n + m - k;
+        System.arraycopy(script, k, script, 0, length);
+        return length;
+    }
+
+
+    /**
+     * Produces the same {@link Alignment} as {@link #align(String[], String[])} in memory linear in the sequence lengths.
+     * Instead of a full backtrace matrix, the alignment path is found by divide and conquer ({@link HirschbergAligner}),
+     * at roughly twice the computation. Intended for very long transcripts whose backtrace matrix would not fit in memory.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return results of aligning the hypothesis to the reference
+     */
+    public Alignment alignLinearSpace(String [] reference, String [] hypothesis) {
+        return alignLinearSpace(reference, hypothesis, 1);
+    }
+
+
+    /**
+     * Produces the same {@link Alignment} as {@link #align(String[], String[])} in memory linear in the sequence lengths,
+     * solving independent halves of the divide and conquer on a fork/join pool.
+     * @see #alignLinearSpace(String[], String[])
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @param parallelism number of worker threads to align with; 1 aligns on the calling thread
+     * @return results of aligning the hypothesis to the reference
+     */
+    public Alignment alignLinearSpace(String [] reference, String [] hypothesis, int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        WordVocabulary vocabulary = new WordVocabulary();
+        HirschbergAligner hirschberg = new HirschbergAligner(vocabulary.intern(reference), vocabulary.intern(hypothesis),
+                substitutionPenalty, insertionPenalty, deletionPenalty);
+
+        byte [] ops;
+        if(parallelism == 1) {
+            ops = hirschberg.align(null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ops = hirschberg.align(pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return buildAlignment(reference, hypothesis, ops);
+    }
+
+
+    /**
+     * Builds the aligned word sequences from edit operations in sequence order, writing directly into arrays of the final size.
+     * Words are lowercased where they match and uppercased where they do not, as in {@link #align(String[], String[])}.
+     */
+    private Alignment buildAlignment(String [] reference, String [] hypothesis, byte [] ops) {
+        String [] alignedReference = new String[ops.length];
+        String [] alignedHypothesis = new String[ops.length];
         int numSub = 0;
         int numDel = 0;
         int numIns = 0;
-        int i = cost.length - 1;
-        int j = cost[0].length - 1;
-        while(i > 0 || j > 0) {
-            switch(backtrace[i][j]) {
-                case OK: alignedReference.add(0, reference[i-1].toLowerCase()); alignedHypothesis.add(0,hypothesis[j-1].toLowerCase()); i--; j--; break;
-                case SUB: alignedReference.add(0, reference[i-1].toUpperCase()); alignedHypothesis.add(0,hypothesis[j-1].toUpperCase()); i--; j--; numSub++; break;
-                case INS: alignedReference.add(0, null); alignedHypothesis.add(0,hypothesis[j-1].toUpperCase()); j--; numIns++; break;
-                case DEL: alignedReference.add(0, reference[i-1].toUpperCase()); alignedHypothesis.add(0,null); i--; numDel++; break;
+        int i = 0;
+        int j = 0;
+        for(int k=0; k<ops.length; k++) {
+            switch(ops[k]) {
+                case OK: alignedReference[k] = reference[i].toLowerCase(); alignedHypothesis[k] = hypothesis[j].toLowerCase(); i++; j++; break;
+                case SUB: alignedReference[k] = reference[i].toUpperCase(); alignedHypothesis[k] = hypothesis[j].toUpperCase(); i++; j++; numSub++; break;
+                case INS: alignedReference[k] = null; alignedHypothesis[k] = hypothesis[j].toUpperCase(); j++; numIns++; break;
+                case DEL: alignedReference[k] = reference[i].toUpperCase(); alignedHypothesis[k] = null; i++; numDel++; break;
             }
         }
+        return new Alignment(alignedReference, alignedHypothesis, numSub, numIns, numDel);
+    }
 
-        return new Alignment(alignedReference.toArray(new String[] {}), alignedHypothesis.toArray(new String[] {}), numSub, numIns, numDel);
+
+    /**
+     * Produces only the edit operation counts of the alignment of the hypothesis words to the reference words.
+     * The counts are identical to those of {@link #align(String[], String[])}, but the dynamic programming table is
+     * evaluated two rows at a time, with each cell carrying the edit counts of its best path instead of a backtrace.
+     * Memory is therefore linear in the length of the shorter sequence.
+     *
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return edit operation counts of aligning the hypothesis to the reference
+     */
+    public AlignmentCounts alignCounts(String [] reference, String [] hypothesis) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        return alignCounts(vocabulary.intern(reference), vocabulary.intern(hypothesis));
     }
-}
 
+
+    /**
+     * Produces only the edit operation counts of the alignment of two interned word sequences.
+     * This is the kernel behind {@link #alignCounts(String[], String[])}; words are equal exactly when their IDs are, so no strings are touched.
+     *
+     * @see WordVocabulary
+     * @param reference IDs of the words of the true sentence
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the reference
+     * @return edit operation counts of aligning the hypothesis to the reference
+     */
+    public AlignmentCounts alignCounts(int [] reference, int [] hypothesis) {
+        AlignerSession session = getSession();
+        alignCounts(reference, reference.length, hypothesis, hypothesis.length, session);
+        int [] counts = session.counts;
+        return new AlignmentCounts(counts[0], counts[1], counts[2], reference.length, hypothesis.length);
+    }
+
+
+    /**
+     * Kernel of {@link #alignCounts(int[], int[])} working on the first n and m IDs of the given arrays and on the buffers of a session.
+     * Leaves substitutions, insertions and deletions in {@link AlignerSession#counts}.
+     */
+    void alignCounts(int [] reference, int n, int [] hypothesis, int m, AlignerSession session) {
+        // rollingCounts yields substitutions, gaps along the row (inner sequence) and gaps along the column (outer sequence)
+        int [] counts = session.counts;
+        if(m <= n) {
+            // Rows run along the hypothesis: moving along a row is an insertion, which wins ties against deletions.
+            rollingCounts(reference, n, hypothesis, m, insertionPenalty, deletionPenalty, true, session);
+        } else {
+            // Transposed table with rows along the reference: moving along a row is now a deletion.
+            rollingCounts(hypothesis, m, reference, n, deletionPenalty, insertionPenalty, false, session);
+            int t = counts[1]; counts[1] = counts[2]; counts[2] = t;
+        }
+    }
+
+
+    /**
+     * Produces the same edit operation counts as {@link #alignCounts(String[], String[])} using several threads for one sentence pair.
+     * @see #alignCountsWavefront(int[], int[], int)
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @param parallelism number of worker threads to align with
+     * @return edit operation counts of aligning the hypothesis to the reference
+     */
+    public AlignmentCounts alignCountsWavefront(String [] reference, String [] hypothesis, int parallelism) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        return alignCountsWavefront(vocabulary.intern(reference), vocabulary.intern(hypothesis), parallelism);
+    }
+
+
+    /**
+     * Produces the same edit operation counts as {@link #alignCounts(int[], int[])} using several threads for one sentence pair.
+     * The table is cut into tiles whose anti-diagonals are computed one after another, the tiles of each anti-diagonal
+     * in parallel ({@link WavefrontAligner}). Intended for very long transcripts; sentence pairs too small to fill a few
+     * anti-diagonals with tiles are aligned on the calling thread.
+     *
+     * @param reference IDs of the words of the true sentence
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the reference
+     * @param parallelism number of worker threads to align with
+     * @return edit operation counts of aligning the hypothesis to the reference
+     */
+    public AlignmentCounts alignCountsWavefront(int [] reference, int [] hypothesis, int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        int tilesPerSide = Math.min(reference.length, hypothesis.length) / WavefrontAligner.TILE;
+        if(parallelism == 1 || tilesPerSide < 2) {
+            return alignCounts(reference, hypothesis);
+        }
+
+        WavefrontAligner wavefront = new WavefrontAligner(reference, hypothesis, substitutionPenalty, insertionPenalty, deletionPenalty);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int [] counts = wavefront.alignCounts(pool);
+            return new AlignmentCounts(counts[0], counts[1], counts[2], reference.length, hypothesis.length);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Decides whether the word error rate of the hypothesis exceeds a threshold, using {@link #alignCountsBanded(int[], int[], int)}.
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @param maxWordErrorRate highest acceptable word error rate
+     * @return true when the word error rate of the alignment is greater than maxWordErrorRate
+     */
+    public boolean exceedsWordErrorRate(String [] reference, String [] hypothesis, float maxWordErrorRate) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        int maxErrors = (int) Math.floor(maxWordErrorRate * reference.length);
+        return alignCountsBanded(vocabulary.intern(reference), vocabulary.intern(hypothesis), maxErrors) == null;
+    }
+
+
+    /**
+     * Produces the edit operation counts of the alignment of two interned word sequences, provided it has at most maxErrors errors.
+     *
+     * <p>An alignment with at most maxErrors errors costs at most maxErrors times the largest penalty, and a path through a cell
+     * off the main diagonal by d words pays at least d times the smallest gap penalty. Only the diagonal band of cells that can
+     * stay within that cost bound is computed (Ukkonen's cut-off), and the computation stops as soon as no cell of a row can
+     * still finish within the bound. Within the band, costs and tie-breaking are those of the full table, so the counts are
+     * identical to {@link #alignCounts(int[], int[])} whenever they are returned. The work is O(k&middot;n) instead of O(n&middot;m).</p>
+     *
+     * @param reference IDs of the words of the true sentence
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the reference
+     * @param maxErrors highest acceptable number of substitutions, insertions and deletions
+     * @return edit operation counts of aligning the hypothesis to the reference, or null if the alignment has more than maxErrors errors
+     */
+    public AlignmentCounts alignCountsBanded(int [] reference, int [] hypothesis, int maxErrors) {
+        if(maxErrors < 0) {
+            return null;
+        }
+        final int n = reference.length;
+        final int m = hypothesis.length;
+        final int minGapPenalty = Math.max(1, Math.min(insertionPenalty, deletionPenalty));
+        final long costBound = (long) maxErrors * Math.max(substitutionPenalty, Math.max(insertionPenalty, deletionPenalty));
+        final int width = (int) Math.min(Math.max(n, m), costBound / minGapPenalty);
+        if(Math.abs(n - m) > width) {
+            return null;
+        }
+
+        AlignerSession session = getSession();
+        session.ensureRowCapacity(m + 2);
+        int [] prevCost = session.prevCost, curCost = session.curCost;
+        int [] prevSub = session.prevSub, curSub = session.curSub;
+        int [] prevIns = session.prevGap, curIns = session.curGap;
+
+        // Row 0, limited to the band; the cell right of it reads as unreachable.
+        int hi = Math.min(m, width);
+        for(int j=0; j<=hi; j++) {
+            prevCost[j] = insertionPenalty * j;
+            prevSub[j] = 0;
+            prevIns[j] = j;
+        }
+        prevCost[hi+1] = BANDED_UNREACHABLE;
+
+        for(int i=1; i<=n; i++) {
+            final int lo = Math.max(0, i - width);
+            hi = Math.min(m, i + width);
+            final int word = reference[i-1];
+            long rowMinimum = Long.MAX_VALUE;
+
+            if(lo == 0) {
+                curCost[0] = deletionPenalty * i;
+                curSub[0] = 0;
+                curIns[0] = 0;
+            } else {
+                curCost[lo-1] = BANDED_UNREACHABLE;
+            }
+
+            for(int j=Math.max(1, lo); j<=hi; j++) {
+                boolean match = word == hypothesis[j-1];
+                int cs = prevCost[j-1] + (match ? 0 : substitutionPenalty);
+                int ci = curCost[j-1] + insertionPenalty;
+                int cd = prevCost[j] + deletionPenalty;
+
+                int mincost = Math.min(cs, Math.min(ci, cd));
+                if(cs == mincost) {
+                    curCost[j] = cs;
+                    curSub[j] = prevSub[j-1] + (match ? 0 : 1);
+                    curIns[j] = prevIns[j-1];
+                } else if(ci == mincost) {
+                    curCost[j] = ci;
+                    curSub[j] = curSub[j-1];
+                    curIns[j] = curIns[j-1] + 1;
+                } else {
+                    curCost[j] = cd;
+                    curSub[j] = prevSub[j];
+                    curIns[j] = prevIns[j];
+                }
+            }
+            if(hi < m) {
+                curCost[hi+1] = BANDED_UNREACHABLE;
+            }
+
+            // Lower bound on the final cost through each cell: its cost plus the gaps needed to reach the last cell.
+            for(int j=lo; j<=hi; j++) {
+                long bound = curCost[j] + (long) Math.abs((n - i) - (m - j)) * minGapPenalty;
+                rowMinimum = Math.min(rowMinimum, bound);
+            }
+            if(rowMinimum > costBound) {
+                return null;
+            }
+
+            int [] t;
+            t = prevCost; prevCost = curCost; curCost = t;
+            t = prevSub; prevSub = curSub; curSub = t;
+            t = prevIns; prevIns = curIns; curIns = t;
+        }
+
+        if(prevCost[m] > costBound) {
+            return null;
+        }
+        int numSub = prevSub[m];
+        int numIns = prevIns[m];
+        int numDel = numIns + n - m;
+        if(numSub + numIns + numDel > maxErrors) {
+            return null;
+        }
+        return new AlignmentCounts(numSub, numIns, numDel, n, m);
+    }
+
+
+    /**
+     * Counts the word errors (substitutions, insertions and deletions) of the alignment of the hypothesis words to the reference words.
+     * @see #countErrors(int[], int[])
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return total number of word errors
+     */
+    public int countErrors(String [] reference, String [] hypothesis) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        return countErrors(vocabulary.intern(reference), vocabulary.intern(hypothesis));
+    }
+
+
+    /**
+     * Counts the word errors (substitutions, insertions and deletions) of the alignment of two interned word sequences.
+     * When all penalties are equal, the minimum cost alignment is a minimum edit distance alignment and the count is
+     * computed by the bit-parallel {@link BitParallelEditDistance}. Otherwise it falls back to {@link #alignCounts(int[], int[])}.
+     *
+     * @param reference IDs of the words of the true sentence
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the reference
+     * @return total number of word errors
+     */
+    public int countErrors(int [] reference, int [] hypothesis) {
+        return countErrors(reference, reference.length, hypothesis, hypothesis.length, getSession());
+    }
+
+
+    /**
+     * Kernel of {@link #countErrors(int[], int[])} working on the first n and m IDs of the given arrays and on the buffers of a session.
+     */
+    int countErrors(int [] reference, int n, int [] hypothesis, int m, AlignerSession session) {
+        if(hasUniformPenalties()) {
+            return BitParallelEditDistance.distance(reference, n, hypothesis, m, session.bitVectors);
+        }
+        alignCounts(reference, n, hypothesis, m, session);
+        int [] counts = session.counts;
+        return counts[0] + counts[1] + counts[2];
+    }
+
+
+    /**
+     * Finds the hypothesis of an N-best list with the fewest word errors, which gives the oracle word error rate of the list.
+     * @see #alignNBest(int[], int[][])
+     * @param reference sequence of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypotheses alternative hypothesized sentences, best first; will be evaluated as lowercase.
+     * @return index and edit operation counts of the best hypothesis
+     */
+    public NBestResult alignNBest(String [] reference, List<String []> hypotheses) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        int [][] ids = new int[hypotheses.size()][];
+        for(int k=0; k<ids.length; k++) {
+            ids[k] = vocabulary.intern(hypotheses.get(k));
+        }
+        return alignNBest(vocabulary.intern(reference), ids);
+    }
+
+
+    /**
+     * Finds the interned hypothesis of an N-best list with the fewest word errors.
+     * N-best lists mostly differ in a few words near the end, so the hypotheses are put into a trie and aligned together:
+     * the table is built one column per hypothesis word, and the columns of a prefix shared by several hypotheses are computed once.
+     * The counts of each hypothesis are identical to those of {@link #alignCounts(int[], int[])}.
+     * Of several hypotheses with equally few errors, the one ranked first in the list wins.
+     *
+     * @param reference IDs of the words of the true sentence
+     * @param hypotheses IDs of the words of alternative hypothesized sentences, best first, interned by the same vocabulary as the reference
+     * @return index and edit operation counts of the best hypothesis
+     */
+    public NBestResult alignNBest(int [] reference, int [][] hypotheses) {
+        if(hypotheses.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        int [] cost = new int[hypotheses.length];
+        int [] sub = new int[hypotheses.length];
+        int [] del = new int[hypotheses.length];
+        // Columns run along the reference: moving along a column is a deletion, which loses ties against insertions.
+        trieCounts(new SequenceTrie(hypotheses), reference, deletionPenalty, insertionPenalty, false, cost, sub, del);
+
+        int best = -1;
+        int bestErrors = Integer.MAX_VALUE;
+        for(int k=0; k<hypotheses.length; k++) {
+            int ins = del[k] + hypotheses[k].length - reference.length;
+            int errors = sub[k] + ins + del[k];
+            if(errors < bestErrors) {
+                best = k;
+                bestErrors = errors;
+            }
+        }
+        int ins = del[best] + hypotheses[best].length - reference.length;
+        return new NBestResult(best, new AlignmentCounts(sub[best], ins, del[best], reference.length, hypotheses[best].length));
+    }
+
+
+    /**
+     * Aligns the hypothesis words to the closest of several acceptable reference sentences.
+     * @see #bestReference(int[][], int[])
+     * @param references alternative sequences of words representing the true sentence; will be evaluated as lowercase.
+     * @param hypothesis sequence of words representing the hypothesized sentence; will be evaluated as lowercase.
+     * @return results of aligning the hypothesis to the reference with the lowest alignment cost
+     */
+    public Alignment alignMultiReference(List<String []> references, String [] hypothesis) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        int [][] ids = new int[references.size()][];
+        for(int k=0; k<ids.length; k++) {
+            ids[k] = vocabulary.intern(references.get(k));
+        }
+        int best = bestReference(ids, vocabulary.intern(hypothesis));
+        return align(references.get(best), hypothesis);
+    }
+
+
+    /**
+     * Produces the edit operation counts of aligning interned hypothesis words to the closest of several interned references.
+     * @see #bestReference(int[][], int[])
+     * @param references IDs of the words of alternative true sentences
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the references
+     * @return edit operation counts of aligning the hypothesis to the reference with the lowest alignment cost
+     */
+    public AlignmentCounts alignCountsMultiReference(int [][] references, int [] hypothesis) {
+        return alignCounts(references[bestReference(references, hypothesis)], hypothesis);
+    }
+
+
+    /**
+     * Scores a recognized text against the closest of several accepted ground truths.
+     * Periods are dropped from the text; both are split at whitespace and evaluated as lowercase.
+     * @see #alignCountsMultiReference(int[][], int[])
+     * @param groundTruths alternative texts of the true sentence
+     * @param text recognized text
+     * @return Word-Error-Rate against the ground truth with the lowest alignment cost
+     */
+    public float wordErrorRate(String [] groundTruths, String text) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        int [][] references = new int[groundTruths.length][];
+        for(int k=0; k<references.length; k++) {
+            references[k] = vocabulary.tokenize(groundTruths[k]);
+        }
+        int [] hypothesis = vocabulary.tokenize(text.replace(".", ""));
+        return alignCountsMultiReference(references, hypothesis).getWordErrorRate();
+    }
+
+
+    /**
+     * Scores the alternatives of an N-best list against several accepted ground truths, tokenized as in {@link #wordErrorRate(String[], String)}.
+     * Each ground truth is aligned to the whole list with {@link #alignNBest(int[], int[][])}.
+     * @param groundTruths alternative texts of the true sentence
+     * @param alternatives recognized alternative texts, best first
+     * @return the oracle Word-Error-Rate, i.e. the lowest Word-Error-Rate of any alternative against any ground truth
+     */
+    public float oracleWordErrorRate(String [] groundTruths, List<String> alternatives) {
+        WordVocabulary vocabulary = new WordVocabulary();
+        int [][] hypotheses = new int[alternatives.size()][];
+        for(int k=0; k<hypotheses.length; k++) {
+            hypotheses[k] = vocabulary.tokenize(alternatives.get(k).replace(".", ""));
+        }
+        float oracle = Float.POSITIVE_INFINITY;
+        for(String groundTruth : groundTruths) {
+            // Ground truths may differ in length, so the one with the fewest errors need not have the lowest rate
+            oracle = Math.min(oracle, alignNBest(vocabulary.tokenize(groundTruth), hypotheses).getWordErrorRate());
+        }
+        return oracle;
+    }
+
+
+    /**
+     * Finds the reference with the lowest alignment cost to the hypothesis.
+     * Acceptable references of one utterance mostly share long prefixes, so they are put into a trie and aligned together:
+     * the table is built one row per reference word, and the rows of a prefix shared by several references are computed once.
+     * Of several references with equally low cost, the first one in the list wins.
+     *
+     * @param references IDs of the words of alternative true sentences
+     * @param hypothesis IDs of the words of the hypothesized sentence, interned by the same vocabulary as the references
+     * @return index of the reference with the lowest alignment cost
+     */
+    public int bestReference(int [][] references, int [] hypothesis) {
+        if(references.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        int [] cost = new int[references.length];
+        int [] sub = new int[references.length];
+        int [] ins = new int[references.length];
+        // Rows run along the hypothesis: moving along a row is an insertion, which wins ties against deletions.
+        trieCounts(new SequenceTrie(references), hypothesis, insertionPenalty, deletionPenalty, true, cost, sub, ins);
+
+        int best = 0;
+        for(int k=1; k<references.length; k++) {
+            if(cost[k] < cost[best]) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+
+    /** @return true when substitutions, insertions and deletions are penalized equally, i.e. alignment cost is unit-cost edit distance */
+    public boolean hasUniformPenalties() {
+        return substitutionPenalty == insertionPenalty && insertionPenalty == deletionPenalty;
+    }
+
+
+    /**
+     * Two-row edit distance kernel shared by the counts-only alignments.
+     * The outer sequence indexes the rows and the inner sequence the columns of the (virtual) cost table.
+     * Each cell keeps its cost, the number of substitutions and the number of row gaps of its minimum cost path;
+     * the number of column gaps follows from the cell coordinates.
+     *
+     * @param outer sequence walked by the outer loop
+     * @param outerLength number of words of the outer sequence
+     * @param inner sequence the rolling rows run along
+     * @param innerLength number of words of the inner sequence
+     * @param rowGapPenalty penalty for consuming an inner word against nothing (moving along a row)
+     * @param columnGapPenalty penalty for consuming an outer word against nothing (moving down a column)
+     * @param preferRowGap whether a row gap wins a tie against a column gap
+     * @param session session providing the scratch rows; its {@link AlignerSession#counts} receive substitutions, row gaps and column gaps of the best alignment
+     */
+    private void rollingCounts(int [] outer, int outerLength, int [] inner, int innerLength,
+                               int rowGapPenalty, int columnGapPenalty, boolean preferRowGap, AlignerSession session) {
+        final int rowLength = innerLength + 1;
+        session.ensureRowCapacity(rowLength);
+        int [] prevCost = session.prevCost, curCost = session.curCost;
+        int [] prevSub = session.prevSub, curSub = session.curSub;
+        int [] prevGap = session.prevGap, curGap = session.curGap;
+
+        // First row represents the case where the inner words are all matched against nothing.
+        prevCost[0] = 0;
+        prevSub[0] = 0;
+        prevGap[0] = 0;
+        for(int k=1; k<rowLength; k++) {
+            prevSub[k] = 0;
+            prevCost[k] = rowGapPenalty * k;
+            prevGap[k] = k;
+        }
+
+        for(int i=1; i<=outerLength; i++) {
+            curCost[0] = columnGapPenalty * i;
+            advanceRow(outer[i-1], inner, innerLength, rowGapPenalty, columnGapPenalty, preferRowGap,
+                    prevCost, prevSub, prevGap, curCost, curSub, curGap);
+
+            int [] t;
+            t = prevCost; prevCost = curCost; curCost = t;
+            t = prevSub; prevSub = curSub; curSub = t;
+            t = prevGap; prevGap = curGap; curGap = t;
+        }
+
+        // Along any path, substitutions and matches plus column gaps consume the outer sequence,
+        // while substitutions and matches plus row gaps consume the inner one.
+        int sub = prevSub[rowLength-1];
+        int rowGaps = prevGap[rowLength-1];
+        session.counts[0] = sub;
+        session.counts[1] = rowGaps;
+        session.counts[2] = rowGaps + outerLength - innerLength;
+    }
+
+
+    /**
+     * Computes one row of the table of {@link #rollingCounts}: costs, substitution counts and row gap counts of the cells
+     * that consume one more outer word. curCost[0] must already hold the cost of the first cell of the row.
+     */
+    private void advanceRow(int outerWord, int [] inner, int innerLength, int rowGapPenalty, int columnGapPenalty, boolean preferRowGap,
+                            int [] prevCost, int [] prevSub, int [] prevGap, int [] curCost, int [] curSub, int [] curGap) {
+        curSub[0] = 0;
+        curGap[0] = 0;
+        for(int k=1; k<=innerLength; k++) {
+            boolean match = outerWord == inner[k-1];
+            int cs = prevCost[k-1] + (match ? 0 : substitutionPenalty);
+            int cr = curCost[k-1] + rowGapPenalty;
+            int cc = prevCost[k] + columnGapPenalty;
+
+            int mincost = Math.min(cs, Math.min(cr, cc));
+            if(cs == mincost) {
+                curCost[k] = cs;
+                curSub[k] = prevSub[k-1] + (match ? 0 : 1);
+                curGap[k] = prevGap[k-1];
+            } else if(preferRowGap ? cr == mincost : cc != mincost) {
+                curCost[k] = cr;
+                curSub[k] = curSub[k-1];
+                curGap[k] = curGap[k-1] + 1;
+            } else {
+                curCost[k] = cc;
+                curSub[k] = prevSub[k];
+                curGap[k] = prevGap[k];
+            }
+        }
+    }
+
+
+    /**
+     * The kernel of {@link #rollingCounts} run over a whole trie of outer sequences against one inner sequence.
+     * The rows of a shared prefix are computed once for all sequences below it: two rolling rows walk down each sequence,
+     * and a copy of the row is kept only at the depths where later sequences branch off, so memory stays linear in the
+     * length of the inner sequence times the number of branches, never the length of the outer sequences.
+     *
+     * @param outers trie of the sequences walked by the outer loop
+     * @param inner sequence the rows run along
+     * @param cost receives the alignment cost of each outer sequence, by sequence index
+     * @param sub receives the number of substitutions of each outer sequence
+     * @param rowGaps receives the number of row gaps of each outer sequence; the column gaps follow from the lengths
+     */
+    private void trieCounts(SequenceTrie outers, int [] inner, int rowGapPenalty, int columnGapPenalty, boolean preferRowGap,
+                            int [] cost, int [] sub, int [] rowGaps) {
+        final int rowLength = inner.length + 1;
+        int [] prevCost = new int[rowLength], curCost = new int[rowLength];
+        int [] prevSub = new int[rowLength], curSub = new int[rowLength];
+        int [] prevGap = new int[rowLength], curGap = new int[rowLength];
+
+        // Rows kept at branch depths, deepest on top; a row is dropped once the walk leaves its prefix.
+        final int maxKept = outers.branchCount();
+        int [][] keptCost = new int[maxKept][], keptSub = new int[maxKept][], keptGap = new int[maxKept][];
+        int [] keptDepth = new int[maxKept];
+        int kept = 0;
+
+        for(int p=0; p<outers.size(); p++) {
+            final int index = outers.sequenceAt(p);
+            final int [] outer = outers.get(index);
+            final int shared = outers.sharedPrefixAt(p);
+            while(kept > 0 && keptDepth[kept-1] > shared) {
+                kept--;
+            }
+            if(shared == 0) {
+                // Row 0 is shared by every sequence: the inner words are all matched against nothing.
+                for(int k=0; k<rowLength; k++) {
+                    prevCost[k] = rowGapPenalty * k;
+                    prevSub[k] = 0;
+                    prevGap[k] = k;
+                }
+            } else {
+                System.arraycopy(keptCost[kept-1], 0, prevCost, 0, rowLength);
+                System.arraycopy(keptSub[kept-1], 0, prevSub, 0, rowLength);
+                System.arraycopy(keptGap[kept-1], 0, prevGap, 0, rowLength);
+            }
+
+            final int [] branchDepths = outers.branchDepthsAt(p);
+            int branch = 0;
+            for(int i=shared + 1; i<=outer.length; i++) {
+                curCost[0] = columnGapPenalty * i;
+                advanceRow(outer[i-1], inner, inner.length, rowGapPenalty, columnGapPenalty, preferRowGap,
+                        prevCost, prevSub, prevGap, curCost, curSub, curGap);
+
+                int [] t;
+                t = prevCost; prevCost = curCost; curCost = t;
+                t = prevSub; prevSub = curSub; curSub = t;
+                t = prevGap; prevGap = curGap; curGap = t;
+
+                if(branch < branchDepths.length && branchDepths[branch] == i) {
+                    if(keptCost[kept] == null) {
+                        keptCost[kept] = new int[rowLength];
+                        keptSub[kept] = new int[rowLength];
+                        keptGap[kept] = new int[rowLength];
+                    }
+                    System.arraycopy(prevCost, 0, keptCost[kept], 0, rowLength);
+                    System.arraycopy(prevSub, 0, keptSub[kept], 0, rowLength);
+                    System.arraycopy(prevGap, 0, keptGap[kept], 0, rowLength);
+                    keptDepth[kept++] = i;
+                    branch++;
+                }
+            }
+            cost[index] = prevCost[rowLength-1];
+            sub[index] = prevSub[rowLength-1];
+            rowGaps[index] = prevGap[rowLength-1];
+        }
+    }
+}
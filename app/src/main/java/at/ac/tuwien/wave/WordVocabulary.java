@@ -0,0 +1,173 @@
+package at.ac.tuwien.wave;
+
+import java.util.Arrays;
+
+/**
+ * Maps words to dense integer IDs, so that word sequences can be aligned by comparing primitives.
+ * Words are lowercased when they are interned, matching the case-insensitive comparison of {@link WordSequenceAligner}.
+ * Sequences are only comparable when they were interned by the same vocabulary.
+ *
+ * <p>Words are kept in an array by ID and found through an open-addressing table of IDs with linear probing,
+ * keyed by the cached hash code of the word, so looking up a word neither boxes nor allocates.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @Author: Christoph Winkler
+ */
+public class WordVocabulary {
+
+    /** Marks free slots of the table */
+    private static final int FREE = -1;
+
+    /** Words by ID */
+    private String[] words = new String[256];
+    private int size;
+
+    /** IDs by slot */
+    private int[] table = new int[512];
+    private int mask = table.length - 1;
+
+    /**
+     * Constructor.
+     * Creates an empty vocabulary.
+     */
+    public WordVocabulary() {
+        Arrays.fill(table, FREE);
+    }
+
+    /**
+     * Returns the ID of the given word, assigning the next free ID if the word has not been seen before.
+     *
+     * @param word word to intern; will be evaluated as lowercase.
+     * @return ID of the lowercased word
+     */
+    public int intern(String word) {
+        return internLowerCase(word.toLowerCase());
+    }
+
+    /**
+     * Interns every word of a sequence.
+     *
+     * @param sequence words to intern; will be evaluated as lowercase.
+     * @return IDs of the words, in sequence order
+     */
+    public int[] intern(String[] sequence) {
+        int[] result = new int[sequence.length];
+        for (int i = 0; i < sequence.length; i++) {
+            result[i] = intern(sequence[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Lowercases a text once, splits it on whitespace and interns the resulting words.
+     * Runs of whitespace as well as leading and trailing whitespace do not produce empty words.
+     *
+     * @param text text to tokenize
+     * @return IDs of the words of the text, in text order
+     */
+    public int[] tokenize(String text) {
+        String lower = text.toLowerCase();
+        int[] result = new int[countWords(lower)];
+        int n = 0;
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean boundary = i == lower.length() || Character.isWhitespace(lower.charAt(i));
+            if (boundary && start >= 0) {
+                result[n++] = internLowerCase(lower.substring(start, i));
+                start = -1;
+            } else if (!boundary && start < 0) {
+                start = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the ID of a word without interning it.
+     *
+     * @param word word to look up; will be evaluated as lowercase.
+     * @return ID of the lowercased word, or -1 if it has not been interned
+     */
+    public int getId(String word) {
+        String lower = word.toLowerCase();
+        int id = table[slot(lower)];
+        return id == FREE ? -1 : id;
+    }
+
+    /**
+     * Returns the lowercased word with the given ID.
+     *
+     * @param id ID previously returned by this vocabulary
+     * @return the interned word
+     */
+    public String getWord(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return words[id];
+    }
+
+    /** @return the number of distinct words interned so far */
+    public int size() {
+        return size;
+    }
+
+    private int internLowerCase(String word) {
+        int slot = slot(word);
+        if (table[slot] != FREE) {
+            return table[slot];
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        int id = size++;
+        words[id] = word;
+        table[slot] = id;
+        if (size * 2 > table.length) {
+            grow();
+        }
+        return id;
+    }
+
+    /** @return the slot holding the ID of the lowercased word, or the free slot where it belongs */
+    private int slot(String word) {
+        int slot = hash(word) & mask;
+        while (table[slot] != FREE && !words[table[slot]].equals(word)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(String word) {
+        int hash = word.hashCode();
+        // Spread the bits, the table only looks at the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, FREE);
+        mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(words[id]) & mask;
+            while (table[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+    private static int countWords(String text) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inWord) {
+                count++;
+            }
+            inWord = !whitespace;
+        }
+        return count;
+    }
+}
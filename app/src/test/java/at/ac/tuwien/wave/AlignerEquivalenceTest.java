@@ -0,0 +1,58 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link WordSequenceAligner#align(String[], String[])} against the original full-matrix implementation,
+ * and the rolling-row counts, the interned overloads and the packed edit scripts against align(),
+ * on random sentence pairs for several penalty sets.
+ * Ties between equally cheap alignments must be broken exactly as in the original.
+ *
+ * The other kernels have their own tests, e.g. {@link HirschbergAlignerTest} or {@link WavefrontAlignerTest}.
+ *
+ * @Author: Christoph Winkler
+ */
+public class AlignerEquivalenceTest {
+
+    private static final int RANDOM_CASES = 600;
+
+    @Test
+    public void align_matchesOriginalImplementation() {
+        Random random = new Random(1);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < RANDOM_CASES; t++) {
+                String[][] pair = randomPair(random, 40);
+                assertSameAlignment(penalties(p) + " case " + t, baseline(aligner, pair[0], pair[1]), aligner.align(pair[0], pair[1]));
+            }
+        }
+    }
+
+    @Test
+    public void countsAndOps_matchAlign() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < RANDOM_CASES; t++) {
+                String[][] pair = randomPair(random, 40);
+                String message = penalties(p) + " case " + t;
+                WordSequenceAligner.Alignment expected = aligner.align(pair[0], pair[1]);
+                WordSequenceAligner.AlignmentCounts expectedCounts = counts(aligner, expected);
+                byte[] ops = aligner.alignOps(pair[0], pair[1]);
+                assertArrayEquals(message, ops(expected), ops);
+                assertSameCounts(message, expectedCounts, aligner.alignCounts(pair[0], pair[1]));
+
+                WordVocabulary vocabulary = new WordVocabulary();
+                int[] referenceIds = vocabulary.intern(pair[0]);
+                int[] hypothesisIds = vocabulary.intern(pair[1]);
+                assertSameCounts(message, expectedCounts, aligner.alignCounts(referenceIds, hypothesisIds));
+                assertArrayEquals(message, ops, aligner.alignOps(referenceIds, hypothesisIds));
+            }
+        }
+    }
+}
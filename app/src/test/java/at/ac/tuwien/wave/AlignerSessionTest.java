@@ -0,0 +1,44 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that an {@link AlignerSession}, reused across sentence pairs of changing size, computes the same
+ * counts, error counts and edit scripts as the stateless aligner, also beyond
+ * {@link AlignerSession#MAX_KEPT_BACKTRACE} and after {@link AlignerSession#trim()}.
+ *
+ * @Author: Christoph Winkler
+ */
+public class AlignerSessionTest {
+
+    @Test
+    public void session_matchesAlign() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            AlignerSession session = new AlignerSession(aligner);
+            for (int t = 0; t < 600; t++) {
+                // Now and then a pair too long for the kept backtrace, or a session released in between
+                String[][] pair = randomPair(random, t % 100 == 99 ? 1600 : 40);
+                if (t % 100 == 50) session.trim();
+                String message = penalties(p) + " case " + t;
+                WordSequenceAligner.Alignment expected = aligner.align(pair[0], pair[1]);
+                WordSequenceAligner.AlignmentCounts expectedCounts = counts(aligner, expected);
+                int errors = errors(expected);
+                byte[] ops = ops(expected);
+
+                assertEquals(message, errors, session.alignCounts(pair[0], pair[1]));
+                assertSameCounts(message, expectedCounts, session.getCounts());
+                assertEquals(message, errors, session.countErrors(pair[0], pair[1]));
+                assertEquals(message, ops.length, session.alignOps(pair[0], pair[1]));
+                assertArrayEquals(message, ops, session.getOps());
+                assertSameCounts(message, expectedCounts, session.getCounts());
+            }
+        }
+    }
+}
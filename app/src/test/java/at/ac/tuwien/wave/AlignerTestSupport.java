@@ -0,0 +1,165 @@
+package at.ac.tuwien.wave;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Random sentence pairs, the original full-matrix alignment and assertions shared by the tests of the alignment kernels.
+ *
+ * @Author: Christoph Winkler
+ */
+final class AlignerTestSupport {
+
+    /** Substitution, insertion and deletion penalties; the default, uniform ones, and uneven ones with many ties */
+    static final int[][] PENALTIES = {{100, 75, 75}, {1, 1, 1}, {3, 2, 5}, {2, 5, 3}, {1, 2, 2}};
+
+    private AlignerTestSupport() {
+    }
+
+    /**
+     * The alignment as computed before the kernels were introduced: full cost and backtrace matrices,
+     * filled row by row, with substitutions winning ties over insertions and insertions over deletions.
+     */
+    static WordSequenceAligner.Alignment baseline(WordSequenceAligner aligner, String[] reference, String[] hypothesis) {
+        final int sub = aligner.getSubstitutionPenalty();
+        final int ins = aligner.getInsertionPenalty();
+        final int del = aligner.getDeletionPenalty();
+        int[][] cost = new int[reference.length + 1][hypothesis.length + 1];
+        byte[][] backtrace = new byte[reference.length + 1][hypothesis.length + 1];
+        for (int i = 1; i <= reference.length; i++) {
+            cost[i][0] = del * i;
+            backtrace[i][0] = WordSequenceAligner.DEL;
+        }
+        for (int j = 1; j <= hypothesis.length; j++) {
+            cost[0][j] = ins * j;
+            backtrace[0][j] = WordSequenceAligner.INS;
+        }
+        for (int i = 1; i <= reference.length; i++) {
+            for (int j = 1; j <= hypothesis.length; j++) {
+                boolean match = reference[i - 1].toLowerCase().equals(hypothesis[j - 1].toLowerCase());
+                int cs = cost[i - 1][j - 1] + (match ? 0 : sub);
+                int ci = cost[i][j - 1] + ins;
+                int cd = cost[i - 1][j] + del;
+                int min = Math.min(cs, Math.min(ci, cd));
+                if (cs == min) {
+                    cost[i][j] = cs;
+                    backtrace[i][j] = match ? WordSequenceAligner.OK : WordSequenceAligner.SUB;
+                } else if (ci == min) {
+                    cost[i][j] = ci;
+                    backtrace[i][j] = WordSequenceAligner.INS;
+                } else {
+                    cost[i][j] = cd;
+                    backtrace[i][j] = WordSequenceAligner.DEL;
+                }
+            }
+        }
+
+        List<String> alignedReference = new ArrayList<String>();
+        List<String> alignedHypothesis = new ArrayList<String>();
+        int numSub = 0, numIns = 0, numDel = 0;
+        int i = reference.length;
+        int j = hypothesis.length;
+        while (i > 0 || j > 0) {
+            switch (backtrace[i][j]) {
+                case WordSequenceAligner.OK: alignedReference.add(0, reference[i - 1].toLowerCase()); alignedHypothesis.add(0, hypothesis[j - 1].toLowerCase()); i--; j--; break;
+                case WordSequenceAligner.SUB: alignedReference.add(0, reference[i - 1].toUpperCase()); alignedHypothesis.add(0, hypothesis[j - 1].toUpperCase()); i--; j--; numSub++; break;
+                case WordSequenceAligner.INS: alignedReference.add(0, null); alignedHypothesis.add(0, hypothesis[j - 1].toUpperCase()); j--; numIns++; break;
+                default: alignedReference.add(0, reference[i - 1].toUpperCase()); alignedHypothesis.add(0, null); i--; numDel++; break;
+            }
+        }
+        return aligner.new Alignment(alignedReference.toArray(new String[0]), alignedHypothesis.toArray(new String[0]),
+                numSub, numIns, numDel);
+    }
+
+    /** @return the edit script an alignment was built from */
+    static byte[] ops(WordSequenceAligner.Alignment alignment) {
+        byte[] ops = new byte[alignment.reference.length];
+        for (int k = 0; k < ops.length; k++) {
+            String r = alignment.reference[k];
+            String h = alignment.hypothesis[k];
+            if (r == null) ops[k] = WordSequenceAligner.INS;
+            else if (h == null) ops[k] = WordSequenceAligner.DEL;
+            else if (r.equals(r.toLowerCase()) && r.equals(h)) ops[k] = WordSequenceAligner.OK;
+            else ops[k] = WordSequenceAligner.SUB;
+        }
+        return ops;
+    }
+
+    static WordSequenceAligner.AlignmentCounts counts(WordSequenceAligner aligner, WordSequenceAligner.Alignment a) {
+        return aligner.new AlignmentCounts(a.numSubstitutions, a.numInsertions, a.numDeletions,
+                a.getReferenceLength(), a.getHypothesisLength());
+    }
+
+    static int errors(WordSequenceAligner.Alignment a) {
+        return a.numSubstitutions + a.numInsertions + a.numDeletions;
+    }
+
+    static void assertSameAlignment(String message, WordSequenceAligner.Alignment expected, WordSequenceAligner.Alignment actual) {
+        assertArrayEquals(message, expected.reference, actual.reference);
+        assertArrayEquals(message, expected.hypothesis, actual.hypothesis);
+        assertEquals(message, expected.numSubstitutions, actual.numSubstitutions);
+        assertEquals(message, expected.numInsertions, actual.numInsertions);
+        assertEquals(message, expected.numDeletions, actual.numDeletions);
+    }
+
+    static void assertSameCounts(String message, WordSequenceAligner.AlignmentCounts expected, WordSequenceAligner.AlignmentCounts actual) {
+        assertNotNull(message, actual);
+        assertEquals(message, expected.toString(), actual.toString());
+    }
+
+    /** @return a reference and a hypothesis, either unrelated or the hypothesis derived from the reference by random edits */
+    static String[][] randomPair(Random random, int maxLength) {
+        // Tiny vocabularies make for many equally cheap alignments
+        int vocabularySize = 1 + random.nextInt(random.nextBoolean() ? 4 : 50);
+        String[] reference = words(random, random.nextInt(maxLength + 1), vocabularySize);
+        String[] hypothesis = random.nextInt(3) == 0
+                ? words(random, random.nextInt(maxLength + 1), vocabularySize)
+                : edit(random, reference, random.nextDouble() * 0.6, vocabularySize);
+        return new String[][] {reference, hypothesis};
+    }
+
+    /** @return random words, some capitalized or non-ASCII, so that lowercasing matters */
+    static String[] words(Random random, int length, int vocabularySize) {
+        String[] words = new String[length];
+        for (int i = 0; i < length; i++) {
+            int id = random.nextInt(vocabularySize);
+            String word = (id % 7 == 3 ? "ü" : "w") + id;
+            words[i] = random.nextInt(5) == 0 ? word.toUpperCase() : word;
+        }
+        return words;
+    }
+
+    /** @return the reference with each word substituted, deleted or followed by an insertion at the given total rate */
+    static String[] edit(Random random, String[] reference, double errorRate, int vocabularySize) {
+        List<String> words = new ArrayList<String>();
+        for (String word : reference) {
+            if (random.nextDouble() >= errorRate) {
+                words.add(word);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0: words.add(words(random, 1, vocabularySize)[0]); break;
+                case 1: break;
+                default: words.add(word); words.add(words(random, 1, vocabularySize)[0]); break;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    static String join(List<String> words) {
+        StringBuilder text = new StringBuilder();
+        for (String word : words) {
+            if (text.length() > 0) text.append(' ');
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    static String penalties(int[] p) {
+        return Arrays.toString(p);
+    }
+}
@@ -0,0 +1,45 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link WordSequenceAligner#alignCountsBanded(int[], int[], int)} and
+ * {@link WordSequenceAligner#exceedsWordErrorRate} against align(): the band gives the exact counts
+ * whenever the error budget suffices, and gives up as soon as it does not.
+ *
+ * @Author: Christoph Winkler
+ */
+public class BandedAlignmentTest {
+
+    @Test
+    public void banded_matchesAlignWithinBudget() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 600; t++) {
+                String[][] pair = randomPair(random, 40);
+                String message = penalties(p) + " case " + t;
+                WordSequenceAligner.Alignment expected = aligner.align(pair[0], pair[1]);
+                WordSequenceAligner.AlignmentCounts expectedCounts = counts(aligner, expected);
+                int errors = errors(expected);
+
+                WordVocabulary vocabulary = new WordVocabulary();
+                int[] referenceIds = vocabulary.intern(pair[0]);
+                int[] hypothesisIds = vocabulary.intern(pair[1]);
+                assertSameCounts(message, expectedCounts, aligner.alignCountsBanded(referenceIds, hypothesisIds, errors));
+                assertSameCounts(message, expectedCounts,
+                        aligner.alignCountsBanded(referenceIds, hypothesisIds, errors + random.nextInt(5)));
+                assertNull(message, aligner.alignCountsBanded(referenceIds, hypothesisIds, errors - 1));
+
+                float maxWordErrorRate = random.nextFloat();
+                assertEquals(message, errors > Math.floor(maxWordErrorRate * pair[0].length),
+                        aligner.exceedsWordErrorRate(pair[0], pair[1], maxWordErrorRate));
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link BitParallelEditDistance} and {@link WordSequenceAligner#countErrors(String[], String[])},
+ * which uses it for uniform penalties, against the error counts of align().
+ *
+ * @Author: Christoph Winkler
+ */
+public class BitParallelEditDistanceTest {
+
+    @Test
+    public void distance_matchesAlignAcrossWordBoundaries() {
+        Random random = new Random(5);
+        WordSequenceAligner uniform = new WordSequenceAligner(1, 1, 1);
+        int[] lengths = {0, 1, 63, 64, 65, 127, 128, 129, 300};
+        for (int n : lengths) {
+            for (int m : lengths) {
+                // Small vocabularies use the direct symbol table, large ones the sorted lookup
+                for (int vocabularySize : new int[] {3, 5000}) {
+                    String[] reference = words(random, n, vocabularySize);
+                    String[] hypothesis = words(random, m, vocabularySize);
+                    int errors = errors(uniform.align(reference, hypothesis));
+                    assertEquals(n + "x" + m, errors, uniform.countErrors(reference, hypothesis));
+                    WordVocabulary vocabulary = new WordVocabulary();
+                    assertEquals(n + "x" + m, errors,
+                            BitParallelEditDistance.distance(vocabulary.intern(reference), vocabulary.intern(hypothesis)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countErrors_matchesAlignForAllPenalties() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            // Uneven penalties fall back to the rolling-row counts
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 600; t++) {
+                String[][] pair = randomPair(random, 40);
+                assertEquals(penalties(p) + " case " + t, errors(aligner.align(pair[0], pair[1])),
+                        aligner.countErrors(pair[0], pair[1]));
+            }
+        }
+    }
+}
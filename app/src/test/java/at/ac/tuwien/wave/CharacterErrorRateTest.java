@@ -0,0 +1,117 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link CharacterErrorRate}: code points rather than UTF-16 chars are aligned, the rolling, banded and
+ * bit-parallel kernels agree with align() on the characters as words, and the corpus statistics computed on the
+ * fork/join pool equal the sum of the per-sentence counts.
+ *
+ * @Author: Christoph Winkler
+ */
+public class CharacterErrorRateTest {
+
+    /** Mixed case, a character outside the BMP, which takes two chars, and several kinds of whitespace */
+    private static final String[] ALPHABET = {"a", "b", "A", "ü", "ß", "😀", "😁", " ", "  ", "\t"};
+
+    @Test
+    public void codePoints_countsSurrogatePairAsOneCharacter() {
+        CharacterErrorRate cer = new CharacterErrorRate();
+        assertArrayEquals(new int[] {'a', 0x1F600, 'b'}, CharacterErrorRate.codePoints("a😀b"));
+        assertArrayEquals(new int[] {'a', ' ', 'b'}, CharacterErrorRate.codePoints(" A \t\n b  "));
+
+        // One emoji replaced by another is one substitution in three characters, not two in four chars
+        WordSequenceAligner.AlignmentCounts counts = cer.alignCounts("a😀b", "a😁b");
+        assertEquals(1, counts.numSubstitutions);
+        assertEquals(3, counts.getReferenceLength());
+        assertEquals(1f / 3, cer.getCharacterErrorRate("a😀b", "a😁b"), 1e-6f);
+        assertEquals(1, cer.countErrors("😀", ""));
+        assertEquals(1, cer.countErrors("", "😀"));
+    }
+
+    @Test
+    public void kernels_matchAlignOnCharacters() {
+        Random random = new Random(12);
+        for (int[] p : new int[][] {{1, 1, 1}, {100, 75, 75}, {3, 2, 5}}) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            CharacterErrorRate cer = new CharacterErrorRate(aligner);
+            for (int t = 0; t < 600; t++) {
+                String reference = text(random, random.nextInt(t % 50 == 0 ? 300 : 40));
+                String hypothesis = text(random, random.nextInt(t % 50 == 0 ? 300 : 40));
+                String message = penalties(p) + " case " + t;
+
+                WordSequenceAligner.Alignment expected = aligner.align(characters(reference), characters(hypothesis));
+                int errors = errors(expected);
+                assertSameCounts(message, counts(aligner, expected), cer.alignCounts(reference, hypothesis));
+                assertEquals(message, errors, cer.countErrors(reference, hypothesis));
+                assertSameCounts(message, counts(aligner, expected), cer.alignCountsBanded(reference, hypothesis, errors));
+                assertNull(message, cer.alignCountsBanded(reference, hypothesis, errors - 1));
+
+                int length = CharacterErrorRate.codePoints(reference).length;
+                float maxCharacterErrorRate = random.nextFloat();
+                assertEquals(message, errors > Math.floor(maxCharacterErrorRate * length),
+                        cer.exceedsCharacterErrorRate(reference, hypothesis, maxCharacterErrorRate));
+                if (length > 0) {
+                    assertEquals(message, errors / (float) length, cer.getCharacterErrorRate(reference, hypothesis), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void corpus_matchesSumOfSentences() {
+        Random random = new Random(13);
+        CharacterErrorRate cer = new CharacterErrorRate();
+        List<String> references = new ArrayList<String>();
+        List<String> hypotheses = new ArrayList<String>();
+        WordSequenceAligner.SummaryStatistics expected = cer.newStatistics();
+        long errors = 0;
+        for (int k = 0; k < 2000; k++) {
+            String reference = text(random, random.nextInt(40));
+            String hypothesis = random.nextBoolean() ? reference : text(random, random.nextInt(40));
+            references.add(reference);
+            hypotheses.add(hypothesis);
+            expected.add(cer.alignCounts(reference, hypothesis));
+            errors += cer.countErrors(reference, hypothesis);
+        }
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            WordSequenceAligner.SummaryStatistics statistics = cer.alignCounts(references, hypotheses, parallelism);
+            String message = "on " + parallelism;
+            assertEquals(message, expected.toString(), statistics.toString());
+            assertEquals(message, references.size(), statistics.getNumSentences());
+            assertEquals(message, errors, Math.round(statistics.getWordErrorRate() * statistics.getNumReferenceWords()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corpus_rejectsDifferentSizes() {
+        List<String> references = new ArrayList<String>();
+        references.add("a");
+        new CharacterErrorRate().alignCounts(references, new ArrayList<String>(), 2);
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return text.toString();
+    }
+
+    /** @return the characters of the normalized text, each as a word of its own */
+    private static String[] characters(String text) {
+        int[] codePoints = CharacterErrorRate.codePoints(text);
+        String[] characters = new String[codePoints.length];
+        for (int i = 0; i < codePoints.length; i++) {
+            characters[i] = new String(Character.toChars(codePoints[i]));
+        }
+        return characters;
+    }
+}
@@ -0,0 +1,76 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link CorpusFileScorer} gives the same summary statistics as aligning the sentences in memory,
+ * for plain text, TSV and JSON Lines files and with one or several threads.
+ *
+ * @Author: Christoph Winkler
+ */
+public class CorpusFileScorerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void corpusScorer_matchesAlignCounts() throws IOException {
+        Random random = new Random(9);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            List<String[]> references = new ArrayList<String[]>();
+            List<String[]> hypotheses = new ArrayList<String[]>();
+            WordSequenceAligner.SummaryStatistics expected = aligner.new SummaryStatistics();
+            // More lines than one batch of the scorer
+            for (int k = 0; k < 9000; k++) {
+                String[][] pair = randomPair(random, 12);
+                references.add(pair[0]);
+                hypotheses.add(pair[1]);
+                expected.add(aligner.align(pair[0], pair[1]));
+            }
+            File referenceText = lines(references, "", "");
+            File hypothesisText = lines(hypotheses, "", "");
+            File referenceTsv = lines(references, "id\t", "\tx");
+            File hypothesisTsv = lines(hypotheses, "id\t", "\tx");
+            File referenceJson = lines(references, "{\"id\": 1, \"text\": \"", "\"}");
+            File hypothesisJson = lines(hypotheses, "{\"text\": \"", "\", \"id\": 2}");
+            for (int parallelism = 1; parallelism <= 3; parallelism += 2) {
+                CorpusFileScorer scorer = new CorpusFileScorer(aligner, parallelism);
+                String message = penalties(p) + " on " + parallelism;
+                assertEquals(message, expected.toString(), scorer.score(referenceText, hypothesisText).toString());
+                assertEquals(message, expected.toString(), scorer.scoreTsv(referenceTsv, hypothesisTsv, 1).toString());
+                assertEquals(message, expected.toString(), scorer.scoreJsonl(referenceJson, hypothesisJson, "text").toString());
+            }
+        }
+    }
+
+    /** Writes one sentence per line, between the given prefix and suffix */
+    private File lines(List<String[]> sentences, String prefix, String suffix) throws IOException {
+        File file = folder.newFile();
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            for (String[] sentence : sentences) {
+                writer.write(prefix);
+                writer.write(join(Arrays.asList(sentence)));
+                writer.write(suffix);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}
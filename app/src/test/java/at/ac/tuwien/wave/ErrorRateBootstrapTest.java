@@ -0,0 +1,140 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link ErrorRateBootstrap}: results depend on the seed only, not on the number of threads,
+ * intervals cover the estimate and shrink with the corpus, and inconsistent input is rejected.
+ *
+ * @Author: Christoph Winkler
+ */
+public class ErrorRateBootstrapTest {
+
+    private final WordSequenceAligner aligner = new WordSequenceAligner();
+
+    @Test
+    public void confidenceInterval_dependsOnSeedOnly() {
+        ErrorRateBootstrap bootstrap = new ErrorRateBootstrap(corpus(new Random(1), 500, 0.2));
+        String expected = bootstrap.confidenceInterval(2000, 0.95, 42, 1).toString();
+        for (int parallelism = 2; parallelism <= 4; parallelism++) {
+            assertEquals("on " + parallelism, expected, bootstrap.confidenceInterval(2000, 0.95, 42, parallelism).toString());
+        }
+        assertNotEquals(expected, bootstrap.confidenceInterval(2000, 0.95, 43, 1).toString());
+    }
+
+    @Test
+    public void pairedBootstrap_dependsOnSeedOnly() {
+        Random random = new Random(2);
+        WordSequenceAligner.SummaryStatistics a = corpus(random, 500, 0.2);
+        WordSequenceAligner.SummaryStatistics b = sameSentences(random, a, 0.25);
+        String expected = ErrorRateBootstrap.pairedBootstrap(a, b, 2000, 0.95, 42, 1).toString();
+        for (int parallelism = 2; parallelism <= 4; parallelism++) {
+            assertEquals("on " + parallelism, expected,
+                    ErrorRateBootstrap.pairedBootstrap(a, b, 2000, 0.95, 42, parallelism).toString());
+        }
+    }
+
+    @Test
+    public void confidenceInterval_containsEstimateAndNarrowsWithCorpusSize() {
+        Random random = new Random(3);
+        double previousWidth = Double.POSITIVE_INFINITY;
+        for (int sentences : new int[] {50, 500, 5000}) {
+            WordSequenceAligner.SummaryStatistics statistics = corpus(random, sentences, 0.2);
+            ErrorRateBootstrap.Interval interval = new ErrorRateBootstrap(statistics).confidenceInterval(2000, 0.95, 7, 2);
+            String message = sentences + " sentences: " + interval;
+            assertEquals(message, statistics.getWordErrorRate(), interval.getEstimate(), 1e-6);
+            assertTrue(message, interval.getLower() <= interval.getEstimate());
+            assertTrue(message, interval.getEstimate() <= interval.getUpper());
+            // The width shrinks with the square root of the corpus size, about 3.2 times per step
+            double width = interval.getUpper() - interval.getLower();
+            assertTrue(message, width < previousWidth / 2);
+            previousWidth = width;
+        }
+    }
+
+    @Test
+    public void pairedBootstrap_detectsBetterSystem() {
+        Random random = new Random(4);
+        WordSequenceAligner.SummaryStatistics a = corpus(random, 2000, 0.1);
+        WordSequenceAligner.SummaryStatistics b = sameSentences(random, a, 0.3);
+        ErrorRateBootstrap.PairedResult result = ErrorRateBootstrap.pairedBootstrap(a, b, 2000, 0.95, 5, 2);
+        assertTrue(result.toString(), result.getPValue() < 0.01);
+        assertTrue(result.toString(), result.getDifference().getUpper() < 0);
+
+        // A system compared with itself differs in no resample
+        result = ErrorRateBootstrap.pairedBootstrap(a, a, 2000, 0.95, 5, 2);
+        assertEquals(0, result.getDifference().getLower(), 0);
+        assertEquals(0, result.getDifference().getUpper(), 0);
+        assertEquals(1, result.getPValue(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pairedBootstrap_rejectsDifferentSizes() {
+        Random random = new Random(5);
+        WordSequenceAligner.SummaryStatistics a = corpus(random, 100, 0.2);
+        WordSequenceAligner.SummaryStatistics b = aligner.new SummaryStatistics(true);
+        for (int k = 0; k < 99; k++) {
+            int length = a.getSentenceReferenceWords(k);
+            b.add(0, 0, 0, length, length);
+        }
+        ErrorRateBootstrap.pairedBootstrap(a, b, 100, 0.95, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pairedBootstrap_rejectsDifferentSentences() {
+        Random random = new Random(6);
+        ErrorRateBootstrap.pairedBootstrap(corpus(random, 100, 0.2), corpus(random, 100, 0.2), 100, 0.95, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyCorpus() {
+        new ErrorRateBootstrap(aligner.new SummaryStatistics(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsCorpusWithoutReferenceWords() {
+        WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics(true);
+        statistics.add(0, 2, 0, 0, 2);
+        new ErrorRateBootstrap(statistics);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTotalsOnly() {
+        WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics();
+        statistics.add(1, 0, 0, 5, 5);
+        new ErrorRateBootstrap(statistics);
+    }
+
+    /** @return statistics of sentences of 5 to 25 words, each word substituted at the given rate */
+    private WordSequenceAligner.SummaryStatistics corpus(Random random, int sentences, double errorRate) {
+        WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics(true);
+        for (int k = 0; k < sentences; k++) {
+            int length = 5 + random.nextInt(21);
+            statistics.add(substitutions(random, length, errorRate), 0, 0, length, length);
+        }
+        return statistics;
+    }
+
+    /** @return statistics of a second system on the same sentences */
+    private WordSequenceAligner.SummaryStatistics sameSentences(Random random, WordSequenceAligner.SummaryStatistics first,
+                                                                double errorRate) {
+        WordSequenceAligner.SummaryStatistics statistics = aligner.new SummaryStatistics(true);
+        for (int k = 0; k < first.getNumSentences(); k++) {
+            int length = first.getSentenceReferenceWords(k);
+            statistics.add(substitutions(random, length, errorRate), 0, 0, length, length);
+        }
+        return statistics;
+    }
+
+    private static int substitutions(Random random, int length, double errorRate) {
+        int errors = 0;
+        for (int i = 0; i < length; i++) {
+            if (random.nextDouble() < errorRate) errors++;
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,51 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+
+/**
+ * Checks the linear-space alignment of {@link HirschbergAligner} against align(), on small random pairs
+ * and on sizes around its base-case and parallel-split thresholds.
+ *
+ * @Author: Christoph Winkler
+ */
+public class HirschbergAlignerTest {
+
+    @Test
+    public void linearSpace_matchesAlign() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 600; t++) {
+                String[][] pair = randomPair(random, 40);
+                assertSameAlignment(penalties(p) + " case " + t, aligner.align(pair[0], pair[1]),
+                        aligner.alignLinearSpace(pair[0], pair[1]));
+            }
+        }
+    }
+
+    @Test
+    public void linearSpace_matchesAlignAroundHirschbergThresholds() {
+        Random random = new Random(3);
+        // Base case below 1 << 16 cells, parallel split above 1 << 20 cells, and single-row rectangles
+        int[][] sizes = {{255, 257}, {256, 256}, {257, 256}, {1, 70000}, {70000, 1}, {300, 400}, {1030, 1030}, {1100, 960}};
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int[] size : sizes) {
+                String[] reference = words(random, size[0], 50);
+                String[] hypothesis = size[0] == size[1] ? edit(random, reference, 0.3, 50) : words(random, size[1], 50);
+                String message = penalties(p) + " " + size[0] + "x" + size[1];
+                WordSequenceAligner.Alignment expected = aligner.align(reference, hypothesis);
+                assertSameAlignment(message, expected, aligner.alignLinearSpace(reference, hypothesis));
+                assertSameAlignment(message + " parallel", expected, aligner.alignLinearSpace(reference, hypothesis, 3));
+            }
+        }
+        WordSequenceAligner aligner = new WordSequenceAligner();
+        String[] reference = words(random, 1030, 20);
+        String[] hypothesis = edit(random, reference, 0.2, 20);
+        assertSameAlignment("original", baseline(aligner, reference, hypothesis), aligner.alignLinearSpace(reference, hypothesis, 2));
+    }
+}
@@ -0,0 +1,54 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link IncrementalAligner} against aligning the whole hypothesis again after every
+ * append, rollback and revised partial result.
+ *
+ * @Author: Christoph Winkler
+ */
+public class IncrementalAlignerTest {
+
+    @Test
+    public void incremental_matchesAlignCounts() {
+        Random random = new Random(6);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 100; t++) {
+                String[] reference = words(random, random.nextInt(30), 8);
+                IncrementalAligner incremental = new IncrementalAligner(aligner, reference, random.nextInt(4));
+                List<String> hypothesis = new ArrayList<String>();
+                for (int step = 0; step < 40; step++) {
+                    int action = random.nextInt(6);
+                    if (action == 0 && !hypothesis.isEmpty()) {
+                        int count = random.nextInt(hypothesis.size() + 1);
+                        incremental.rollback(count);
+                        hypothesis.subList(hypothesis.size() - count, hypothesis.size()).clear();
+                    } else if (action == 1) {
+                        // A revised partial result: keep a prefix and replace the rest
+                        hypothesis = new ArrayList<String>(hypothesis.subList(0, random.nextInt(hypothesis.size() + 1)));
+                        hypothesis.addAll(Arrays.asList(words(random, random.nextInt(5), 8)));
+                        incremental.update(join(hypothesis));
+                    } else {
+                        String word = words(random, 1, 8)[0];
+                        incremental.append(word);
+                        hypothesis.add(word);
+                    }
+                    String[] current = hypothesis.toArray(new String[0]);
+                    assertEquals(hypothesis.size(), incremental.getHypothesisLength());
+                    assertSameCounts(penalties(p) + " case " + t + " step " + step,
+                            aligner.alignCounts(reference, current), incremental.getCounts());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link LongIntHashMap} against a {@link HashMap} while it grows, and its handling of the free-slot marker.
+ *
+ * @Author: Christoph Winkler
+ */
+public class LongIntHashMapTest {
+
+    @Test
+    public void addTo_matchesHashMapAcrossResizes() {
+        Random random = new Random(1);
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        int capacity = map.capacity();
+        int resizes = 0;
+        for (int k = 0; k < 20000; k++) {
+            // Packed ID pairs as WordConfusions uses them, with -1 on either side, plus arbitrary keys
+            long key;
+            switch (random.nextInt(4)) {
+                case 0: key = (long) random.nextInt(300) << 32 | random.nextInt(300); break;
+                case 1: key = -1L << 32 | random.nextInt(300); break;
+                case 2: key = (long) random.nextInt(300) << 32 | 0xFFFFFFFFL; break;
+                default: key = random.nextLong(); break;
+            }
+            if (key == LongIntHashMap.FREE) continue;
+            int delta = 1 + random.nextInt(3);
+            map.addTo(key, delta);
+            Integer old = expected.get(key);
+            expected.put(key, old == null ? delta : old + delta);
+            if (map.capacity() != capacity) {
+                capacity = map.capacity();
+                resizes++;
+                assertContains(expected, map);
+            }
+        }
+        assertTrue(resizes > 5);
+        assertContains(expected, map);
+        assertEquals(0, map.get(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void slots_holdEveryEntryOnce() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = -500; key < 500; key++) map.addTo(key * 0x100000000L, (int) (key & 7) + 1);
+        Map<Long, Integer> seen = new HashMap<Long, Integer>();
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            long key = map.keyAt(slot);
+            if (key != LongIntHashMap.FREE) {
+                assertNull(seen.put(key, map.valueAt(slot)));
+            }
+        }
+        assertEquals(1000, seen.size());
+        assertEquals(map.size(), seen.size());
+        for (Map.Entry<Long, Integer> entry : seen.entrySet()) {
+            assertEquals((int) (entry.getKey() / 0x100000000L & 7) + 1, (int) entry.getValue());
+        }
+    }
+
+    @Test
+    public void get_returnsZeroForFreeKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.addTo(0, 1);
+        map.addTo(Long.MAX_VALUE, 2);
+        assertEquals(0, map.get(LongIntHashMap.FREE));
+        assertEquals(1, map.get(0));
+        assertEquals(2, map.get(Long.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTo_rejectsFreeKey() {
+        new LongIntHashMap().addTo(LongIntHashMap.FREE, 1);
+    }
+
+    private static void assertContains(Map<Long, Integer> expected, LongIntHashMap map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals("key " + entry.getKey(), (long) entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the prefix-trie alignments against aligning every sequence separately:
+ * {@link WordSequenceAligner#alignNBest} over hypotheses and the multi-reference alignments over references.
+ *
+ * @Author: Christoph Winkler
+ */
+public class NBestAlignmentTest {
+
+    @Test
+    public void nBestAndMultiReference_matchSeparateAlignments() {
+        Random random = new Random(7);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 300; t++) {
+                String[] other = words(random, random.nextInt(15), 3);
+                List<String[]> sequences = new ArrayList<String[]>();
+                String[] base = words(random, random.nextInt(15), 3);
+                int count = 1 + random.nextInt(20);
+                for (int k = 0; k < count; k++) {
+                    // Mostly variants of a common sentence, which share prefixes, plus unrelated ones
+                    String[] sequence = random.nextInt(4) == 0
+                            ? words(random, random.nextInt(15), 3)
+                            : Arrays.copyOf(base, random.nextInt(base.length + 1) + random.nextInt(3));
+                    for (int i = 0; i < sequence.length; i++) {
+                        if (sequence[i] == null || random.nextInt(8) == 0) sequence[i] = words(random, 1, 3)[0];
+                    }
+                    sequences.add(sequence);
+                }
+                String message = penalties(p) + " case " + t;
+
+                // N-best: fewest errors, first in the list on ties
+                int best = -1;
+                int bestErrors = Integer.MAX_VALUE;
+                for (int k = 0; k < count; k++) {
+                    int errors = errors(aligner.align(other, sequences.get(k)));
+                    if (errors < bestErrors) {
+                        best = k;
+                        bestErrors = errors;
+                    }
+                }
+                WordSequenceAligner.NBestResult nBest = aligner.alignNBest(other, sequences);
+                assertEquals(message, best, nBest.getIndex());
+                assertSameCounts(message, aligner.alignCounts(other, sequences.get(best)), nBest.getCounts());
+
+                // Multi-reference: lowest cost, first in the list on ties
+                best = -1;
+                long bestCost = Long.MAX_VALUE;
+                for (int k = 0; k < count; k++) {
+                    WordSequenceAligner.Alignment a = aligner.align(sequences.get(k), other);
+                    long cost = (long) a.numSubstitutions * p[0] + (long) a.numInsertions * p[1] + (long) a.numDeletions * p[2];
+                    if (cost < bestCost) {
+                        best = k;
+                        bestCost = cost;
+                    }
+                }
+                assertSameAlignment(message, aligner.align(sequences.get(best), other), aligner.alignMultiReference(sequences, other));
+                WordVocabulary vocabulary = new WordVocabulary();
+                int[][] ids = new int[count][];
+                for (int k = 0; k < count; k++) ids[k] = vocabulary.intern(sequences.get(k));
+                int[] otherIds = vocabulary.intern(other);
+                assertEquals(message, best, aligner.bestReference(ids, otherIds));
+                assertSameCounts(message, aligner.alignCounts(sequences.get(best), other), aligner.alignCountsMultiReference(ids, otherIds));
+            }
+        }
+    }
+
+    @Test
+    public void multiReference_handlesLongReferences() {
+        Random random = new Random(10);
+        WordSequenceAligner aligner = new WordSequenceAligner();
+        // Rows for every trie depth would take 3 * 8000 * 8000 ints, more than the default test heap
+        int length = 8000;
+        String[] base = words(random, length, 1000);
+        List<String[]> references = new ArrayList<String[]>();
+        references.add(base);
+        // Variants that split off late, early and in between
+        for (int split : new int[] {length - 10, 5, length / 2}) {
+            String[] variant = base.clone();
+            for (int i = split; i < length; i += 1 + random.nextInt(200)) variant[i] = words(random, 1, 1000)[0];
+            references.add(variant);
+        }
+        String[] hypothesis = edit(random, references.get(2), 0.1, 1000);
+
+        WordVocabulary vocabulary = new WordVocabulary();
+        int[][] ids = new int[references.size()][];
+        for (int k = 0; k < ids.length; k++) ids[k] = vocabulary.intern(references.get(k));
+        int[] hypothesisIds = vocabulary.intern(hypothesis);
+
+        int best = -1;
+        long bestCost = Long.MAX_VALUE;
+        int bestErrors = Integer.MAX_VALUE;
+        int fewest = -1;
+        for (int k = 0; k < ids.length; k++) {
+            WordSequenceAligner.AlignmentCounts c = aligner.alignCounts(ids[k], hypothesisIds);
+            long cost = 100L * c.numSubstitutions + 75L * (c.numInsertions + c.numDeletions);
+            if (cost < bestCost) {
+                best = k;
+                bestCost = cost;
+            }
+            int errors = c.numSubstitutions + c.numInsertions + c.numDeletions;
+            if (errors < bestErrors) {
+                fewest = k;
+                bestErrors = errors;
+            }
+        }
+        assertEquals(best, aligner.bestReference(ids, hypothesisIds));
+        assertSameCounts("multi-reference", aligner.alignCounts(ids[best], hypothesisIds),
+                aligner.alignCountsMultiReference(ids, hypothesisIds));
+        WordSequenceAligner.NBestResult nBest = aligner.alignNBest(hypothesisIds, ids);
+        assertEquals(fewest, nBest.getIndex());
+        assertSameCounts("n-best", aligner.alignCounts(hypothesisIds, ids[fewest]), nBest.getCounts());
+    }
+
+    @Test
+    public void wordErrorRate_scoresTextAgainstClosestGroundTruth() {
+        WordSequenceAligner aligner = new WordSequenceAligner();
+        String[] groundTruths = {"the quick brown fox", "the quick brown-fox"};
+        assertEquals(0f, aligner.wordErrorRate(groundTruths, "The quick brown fox."), 0f);
+        assertEquals(0f, aligner.wordErrorRate(groundTruths, " the  Quick\tbrown-fox "), 0f);
+        assertEquals(0.25f, aligner.wordErrorRate(groundTruths, "the quick brown box"), 0f);
+        assertEquals(1f / 3, aligner.wordErrorRate(groundTruths, "the quick brown-fox jumps"), 1e-6f);
+    }
+
+    @Test
+    public void oracleWordErrorRate_scoresAlternativesAgainstEveryGroundTruth() {
+        WordSequenceAligner aligner = new WordSequenceAligner();
+        String[] groundTruths = {"the quick brown fox", "the quick brown-fox"};
+        // The second alternative matches only the second ground truth
+        List<String> alternatives = Arrays.asList("the quick brown box.", "The quick brown-fox.");
+        assertEquals(0f, aligner.oracleWordErrorRate(groundTruths, alternatives), 0f);
+        assertEquals(0.25f, aligner.oracleWordErrorRate(new String[] {groundTruths[0]}, alternatives), 0f);
+        assertEquals(0f, aligner.oracleWordErrorRate(new String[] {groundTruths[1]}, alternatives), 0f);
+
+        Random random = new Random(11);
+        for (int t = 0; t < 300; t++) {
+            String[] references = new String[1 + random.nextInt(3)];
+            for (int k = 0; k < references.length; k++) {
+                references[k] = join(Arrays.asList(words(random, 1 + random.nextInt(10), 4)));
+            }
+            List<String> texts = new ArrayList<String>();
+            for (int k = 1 + random.nextInt(5); k > 0; k--) {
+                texts.add(join(Arrays.asList(words(random, random.nextInt(10), 4))));
+            }
+            float expected = Float.POSITIVE_INFINITY;
+            for (String reference : references) {
+                for (String text : texts) {
+                    expected = Math.min(expected, aligner.alignCounts(reference.split(" "), text.isEmpty() ? new String[0] : text.split(" "))
+                            .getWordErrorRate());
+                }
+            }
+            float oracle = aligner.oracleWordErrorRate(references, texts);
+            assertEquals("case " + t, expected, oracle, 0f);
+            assertTrue("case " + t, oracle <= aligner.wordErrorRate(references, texts.get(0)));
+        }
+    }
+}
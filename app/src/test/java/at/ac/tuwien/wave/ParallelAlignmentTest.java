@@ -0,0 +1,42 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that batches aligned on several threads give the same alignments, in the same order,
+ * and the same summary statistics as aligning them one by one.
+ *
+ * @Author: Christoph Winkler
+ */
+public class ParallelAlignmentTest {
+
+    @Test
+    public void batches_matchSequentialAlignments() {
+        Random random = new Random(8);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            List<String[]> references = new ArrayList<String[]>();
+            List<String[]> hypotheses = new ArrayList<String[]>();
+            for (int k = 0; k < 500; k++) {
+                String[][] pair = randomPair(random, 30);
+                references.add(pair[0]);
+                hypotheses.add(pair[1]);
+            }
+            List<WordSequenceAligner.Alignment> sequential = aligner.align(references, hypotheses);
+            List<WordSequenceAligner.Alignment> parallel = aligner.align(references, hypotheses, 3);
+            WordSequenceAligner.SummaryStatistics expected = aligner.new SummaryStatistics();
+            for (int k = 0; k < sequential.size(); k++) {
+                assertSameAlignment(penalties(p) + " sentence " + k, sequential.get(k), parallel.get(k));
+                expected.add(sequential.get(k));
+            }
+            assertEquals(penalties(p), expected.toString(), aligner.alignCounts(references, hypotheses, 3).toString());
+        }
+    }
+}
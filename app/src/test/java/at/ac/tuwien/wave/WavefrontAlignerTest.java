@@ -0,0 +1,54 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+
+/**
+ * Checks the tiled anti-diagonal counts of {@link WavefrontAligner} against alignCounts(), on small random pairs,
+ * which take the sequential path, and on sizes around the tile edges.
+ *
+ * @Author: Christoph Winkler
+ */
+public class WavefrontAlignerTest {
+
+    @Test
+    public void wavefront_matchesAlignCounts() {
+        Random random = new Random(2);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int t = 0; t < 600; t++) {
+                String[][] pair = randomPair(random, 40);
+                assertSameCounts(penalties(p) + " case " + t, counts(aligner, aligner.align(pair[0], pair[1])),
+                        aligner.alignCountsWavefront(pair[0], pair[1], 2));
+            }
+        }
+    }
+
+    @Test
+    public void wavefront_matchesAlignCountsAroundTileEdges() {
+        Random random = new Random(4);
+        int tile = WavefrontAligner.TILE;
+        int[][] sizes = {{2 * tile - 1, 2 * tile}, {2 * tile, 2 * tile}, {2 * tile + 1, 3 * tile},
+                {3 * tile - 1, 3 * tile + 1}, {3 * tile, 2 * tile + 7}, {4 * tile + 3, 2 * tile}};
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            for (int[] size : sizes) {
+                String[] reference = words(random, size[0], 30);
+                String[] hypothesis = words(random, size[1], 30);
+                WordSequenceAligner.AlignmentCounts expected = aligner.alignCounts(reference, hypothesis);
+                for (int parallelism = 2; parallelism <= 4; parallelism++) {
+                    assertSameCounts(penalties(p) + " " + size[0] + "x" + size[1] + " on " + parallelism,
+                            expected, aligner.alignCountsWavefront(reference, hypothesis, parallelism));
+                }
+            }
+        }
+        WordSequenceAligner aligner = new WordSequenceAligner();
+        String[] reference = words(random, 2 * tile + 1, 10);
+        String[] hypothesis = edit(random, reference, 0.3, 10);
+        assertSameCounts("original", counts(aligner, baseline(aligner, reference, hypothesis)),
+                aligner.alignCountsWavefront(reference, hypothesis, 3));
+    }
+}
@@ -0,0 +1,156 @@
+package at.ac.tuwien.wave;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static at.ac.tuwien.wave.AlignerTestSupport.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link WordConfusions}: the three ways of adding an alignment count the same events, top-k lists are
+ * ordered by count and then by first occurrence, and merging remaps the word IDs of instances with other vocabularies.
+ *
+ * @Author: Christoph Winkler
+ */
+public class WordConfusionsTest {
+
+    private final WordSequenceAligner aligner = new WordSequenceAligner();
+
+    @Test
+    public void addOverloads_countTheSameEvents() {
+        Random random = new Random(1);
+        for (int[] p : PENALTIES) {
+            WordSequenceAligner aligner = new WordSequenceAligner(p[0], p[1], p[2]);
+            WordConfusions fromOps = new WordConfusions();
+            WordConfusions fromAlignments = new WordConfusions();
+            WordConfusions fromSentences = new WordConfusions();
+            for (int t = 0; t < 500; t++) {
+                // randomPair mixes the case of words, which must match all the same
+                String[][] pair = randomPair(random, 30);
+                int[] reference = fromOps.getVocabulary().intern(pair[0]);
+                int[] hypothesis = fromOps.getVocabulary().intern(pair[1]);
+                byte[] ops = aligner.alignOps(reference, hypothesis);
+                fromOps.add(reference, hypothesis, ops, ops.length);
+                fromAlignments.add(aligner.align(pair[0], pair[1]));
+                fromSentences.add(aligner, pair[0], pair[1]);
+            }
+            assertSameConfusions(penalties(p) + " alignments", fromOps, fromAlignments);
+            assertSameConfusions(penalties(p) + " sentences", fromOps, fromSentences);
+        }
+    }
+
+    @Test
+    public void add_ignoresCaseOfMatchedWords() {
+        WordConfusions confusions = new WordConfusions();
+        confusions.add(aligner.align(new String[] {"Über", "den", "Fluss"}, new String[] {"über", "DEN", "flus"}));
+        assertEquals(1, confusions.getSubstitutions("fluss", "flus"));
+        assertTrue(confusions.topSubstitutions(10).size() == 1);
+        assertEquals(0, confusions.getSubstitutions("über", "über"));
+    }
+
+    @Test
+    public void top_ordersByCountThenFirstOccurrence() {
+        WordConfusions confusions = new WordConfusions();
+        // Counts: a->b 3, c->d 2, e->f 2, g->h 1, i->j 2; insertions x 1, y 2, z 1; deletions u 2, v 2
+        String[][] pairs = {
+                {"a", "b"}, {"c", "d"}, {"e", "f"}, {"g", "h"}, {"i", "j"},
+                {"i", "j"}, {"e", "f"}, {"a", "b"}, {"c", "d"}, {"a", "b"}};
+        for (String[] pair : pairs) {
+            confusions.add(aligner.align(new String[] {pair[0]}, new String[] {pair[1]}));
+        }
+        for (String word : new String[] {"x", "y", "z", "y"}) {
+            confusions.add(aligner.align(new String[0], new String[] {word}));
+        }
+        for (String word : new String[] {"v", "u", "u", "v"}) {
+            confusions.add(aligner.align(new String[] {word}, new String[0]));
+        }
+
+        assertEquals(Arrays.asList("a -> b\t3", "c -> d\t2", "e -> f\t2", "i -> j\t2", "g -> h\t1"),
+                strings(confusions.topSubstitutions(10)));
+        assertEquals(Arrays.asList("a -> b\t3", "c -> d\t2", "e -> f\t2"), strings(confusions.topSubstitutions(3)));
+        assertEquals(Arrays.asList("null -> y\t2", "null -> x\t1", "null -> z\t1"), strings(confusions.topInsertions(5)));
+        assertEquals(Arrays.asList("null -> y\t2", "null -> x\t1"), strings(confusions.topInsertions(2)));
+        assertEquals(Arrays.asList("v -> null\t2", "u -> null\t2"), strings(confusions.topDeletions(2)));
+        assertTrue(confusions.topDeletions(0).isEmpty());
+    }
+
+    @Test
+    public void top_matchesSortedCounts() {
+        Random random = new Random(2);
+        WordConfusions confusions = new WordConfusions();
+        for (int t = 0; t < 2000; t++) {
+            String[][] pair = randomPair(random, 20);
+            confusions.add(aligner, pair[0], pair[1]);
+        }
+        List<WordConfusions.Confusion> all = confusions.topSubstitutions(Integer.MAX_VALUE);
+        for (int k = 1; k < all.size(); k++) {
+            WordConfusions.Confusion previous = all.get(k - 1);
+            WordConfusions.Confusion current = all.get(k);
+            assertTrue(previous + " before " + current, previous.count > current.count
+                    || previous.count == current.count && compareIds(confusions, previous, current) < 0);
+        }
+        for (int k : new int[] {1, 7, 50}) {
+            assertEquals(strings(all.subList(0, Math.min(k, all.size()))), strings(confusions.topSubstitutions(k)));
+        }
+    }
+
+    @Test
+    public void merge_remapsIdsOfOtherVocabulary() {
+        Random random = new Random(3);
+        List<String[]> references = new ArrayList<String[]>();
+        List<String[]> hypotheses = new ArrayList<String[]>();
+        for (int t = 0; t < 1000; t++) {
+            String[][] pair = randomPair(random, 20);
+            references.add(pair[0]);
+            hypotheses.add(pair[1]);
+        }
+        WordConfusions expected = new WordConfusions();
+        for (int t = 0; t < references.size(); t++) expected.add(aligner, references.get(t), hypotheses.get(t));
+
+        // The second half sees its words in another order, so the same word has other IDs in each instance
+        WordConfusions first = new WordConfusions();
+        WordConfusions second = new WordConfusions();
+        second.getVocabulary().intern(new String[] {"only-in-second", "w49", "w48", "w1"});
+        for (int t = 0; t < references.size(); t++) {
+            (t < references.size() / 2 ? first : second).add(aligner, references.get(t), hypotheses.get(t));
+        }
+        first.merge(second);
+        assertSameConfusions("merged", expected, first);
+        assertEquals(-1, first.getVocabulary().getId("only-in-second"));
+
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            assertSameConfusions("collected on " + parallelism, expected,
+                    WordConfusions.collect(aligner, references, hypotheses, parallelism));
+        }
+    }
+
+    private static void assertSameConfusions(String message, WordConfusions expected, WordConfusions actual) {
+        assertEquals(message, sorted(expected.topSubstitutions(Integer.MAX_VALUE)), sorted(actual.topSubstitutions(Integer.MAX_VALUE)));
+        assertEquals(message, sorted(expected.topInsertions(Integer.MAX_VALUE)), sorted(actual.topInsertions(Integer.MAX_VALUE)));
+        assertEquals(message, sorted(expected.topDeletions(Integer.MAX_VALUE)), sorted(actual.topDeletions(Integer.MAX_VALUE)));
+    }
+
+    /** @return the confusions as strings, independent of the order of ties, which depends on the vocabulary */
+    private static List<String> sorted(List<WordConfusions.Confusion> confusions) {
+        List<String> strings = strings(confusions);
+        java.util.Collections.sort(strings);
+        return strings;
+    }
+
+    private static List<String> strings(List<WordConfusions.Confusion> confusions) {
+        List<String> strings = new ArrayList<String>();
+        for (WordConfusions.Confusion confusion : confusions) strings.add(confusion.toString());
+        return strings;
+    }
+
+    private static int compareIds(WordConfusions confusions, WordConfusions.Confusion a, WordConfusions.Confusion b) {
+        WordVocabulary vocabulary = confusions.getVocabulary();
+        int byReference = Integer.compare(vocabulary.getId(a.referenceWord), vocabulary.getId(b.referenceWord));
+        return byReference != 0 ? byReference
+                : Integer.compare(vocabulary.getId(a.hypothesisWord), vocabulary.getId(b.hypothesisWord));
+    }
+}
@@ -0,0 +1,62 @@
+package at.ac.tuwien.wave.benchmark;
+
+import at.ac.tuwien.wave.WordSequenceAligner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full alignments with backtrace, i.e. {@link WordSequenceAligner#align(String[], String[])} and its edit script.
+ * The backtrace is quadratic in the sentence length, so lengths stop at 10k words; longer sequences are covered
+ * by {@link CountsBenchmark} and the linear-space alignment.
+ *
+ * @Author: Christoph Winkler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlignBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int length;
+
+    @Param({"0.05", "0.2", "0.5"})
+    public double errorRate;
+
+    @Param({"100", "10000"})
+    public int vocabularySize;
+
+    private final WordSequenceAligner aligner = new WordSequenceAligner();
+    private String[] reference;
+    private String[] hypothesis;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabularySize, 42);
+        reference = corpus.reference(length);
+        hypothesis = corpus.hypothesis(reference, errorRate);
+    }
+
+    @Benchmark
+    public WordSequenceAligner.Alignment align() {
+        return aligner.align(reference, hypothesis);
+    }
+
+    @Benchmark
+    public byte[] alignOps() {
+        return aligner.alignOps(reference, hypothesis);
+    }
+
+    @Benchmark
+    public WordSequenceAligner.Alignment alignLinearSpace() {
+        return aligner.alignLinearSpace(reference, hypothesis);
+    }
+}
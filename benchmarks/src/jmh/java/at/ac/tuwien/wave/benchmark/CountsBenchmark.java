@@ -0,0 +1,83 @@
+package at.ac.tuwien.wave.benchmark;
+
+import at.ac.tuwien.wave.AlignerSession;
+import at.ac.tuwien.wave.WordSequenceAligner;
+import at.ac.tuwien.wave.WordVocabulary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts-only alignments, from 10 up to 10k words: from strings, from interned IDs, through a reused
+ * {@link AlignerSession} and as a plain error count, with the default penalties and with uniform ones,
+ * for which the error count takes the bit-parallel path.
+ *
+ * @Author: Christoph Winkler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CountsBenchmark {
+
+    // The table has length^2 cells; 100000 words would take seconds per call
+    @Param({"10", "100", "1000", "10000"})
+    public int length;
+
+    @Param({"0.05", "0.2", "0.5"})
+    public double errorRate;
+
+    @Param({"100", "10000"})
+    public int vocabularySize;
+
+    /** Substitution, insertion and deletion penalty */
+    @Param({"100,75,75", "1,1,1"})
+    public String penalties;
+
+    private WordSequenceAligner aligner;
+    private String[] reference;
+    private String[] hypothesis;
+    private int[] referenceIds;
+    private int[] hypothesisIds;
+    private AlignerSession session;
+
+    @Setup
+    public void setUp() {
+        String[] p = penalties.split(",");
+        aligner = new WordSequenceAligner(Integer.parseInt(p[0]), Integer.parseInt(p[1]), Integer.parseInt(p[2]));
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabularySize, 42);
+        reference = corpus.reference(length);
+        hypothesis = corpus.hypothesis(reference, errorRate);
+        WordVocabulary vocabulary = new WordVocabulary();
+        referenceIds = vocabulary.intern(reference);
+        hypothesisIds = vocabulary.intern(hypothesis);
+        session = new AlignerSession(aligner);
+    }
+
+    @Benchmark
+    public WordSequenceAligner.AlignmentCounts alignCounts() {
+        return aligner.alignCounts(reference, hypothesis);
+    }
+
+    @Benchmark
+    public WordSequenceAligner.AlignmentCounts alignCountsInterned() {
+        return aligner.alignCounts(referenceIds, hypothesisIds);
+    }
+
+    @Benchmark
+    public int alignCountsSession() {
+        return session.alignCounts(reference, hypothesis);
+    }
+
+    @Benchmark
+    public int countErrors() {
+        return aligner.countErrors(referenceIds, hypothesisIds);
+    }
+}
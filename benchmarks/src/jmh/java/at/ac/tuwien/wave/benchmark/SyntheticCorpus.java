@@ -0,0 +1,86 @@
+package at.ac.tuwien.wave.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates reproducible reference/hypothesis pairs for the benchmarks.
+ * Reference words are drawn from a vocabulary of the given size with a Zipf-like distribution, as in natural text.
+ * The hypothesis is the reference with each word replaced, dropped or followed by an inserted word with the given
+ * total probability, split evenly between the three kinds of errors.
+ *
+ * @Author: Christoph Winkler
+ */
+final class SyntheticCorpus {
+
+    private final Random random;
+    private final double[] cumulative;
+
+    /**
+     * Constructor.
+     * @param vocabularySize number of distinct words
+     * @param seed seed of the random draws
+     */
+    SyntheticCorpus(int vocabularySize, long seed) {
+        random = new Random(seed);
+        cumulative = new double[vocabularySize];
+        double sum = 0;
+        for (int k = 0; k < vocabularySize; k++) {
+            sum += 1.0 / (k + 1);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < vocabularySize; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /** @return a reference sentence of the given number of words */
+    String[] reference(int length) {
+        String[] words = new String[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = nextWord();
+        }
+        return words;
+    }
+
+    /** @return the reference with errors introduced at the given rate */
+    String[] hypothesis(String[] reference, double errorRate) {
+        String[] words = new String[reference.length * 2];
+        int n = 0;
+        for (String word : reference) {
+            if (random.nextDouble() >= errorRate) {
+                words[n++] = word;
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0: words[n++] = nextWord(); break;
+                case 1: break;
+                default: words[n++] = word; words[n++] = nextWord(); break;
+            }
+        }
+        String[] hypothesis = new String[n];
+        System.arraycopy(words, 0, hypothesis, 0, n);
+        return hypothesis;
+    }
+
+    /** @return the words joined by single spaces, as a recognizer returns them */
+    static String text(String[] words) {
+        StringBuilder text = new StringBuilder();
+        for (String word : words) {
+            if (text.length() > 0) text.append(' ');
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    private String nextWord() {
+        double u = random.nextDouble();
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < u) lo = mid + 1;
+            else hi = mid;
+        }
+        return "w" + lo;
+    }
+}
@@ -0,0 +1,61 @@
+package at.ac.tuwien.wave.benchmark;
+
+import at.ac.tuwien.wave.WordSequenceAligner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word-Error-Rate of a recognized text as MainActivity#calcWER scores it, through
+ * WordSequenceAligner#wordErrorRate, against one ground truth or two nearly identical ones.
+ *
+ * @Author: Christoph Winkler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WerBenchmark {
+
+    // The table has length^2 cells per reference; 100000 words would take seconds per call
+    @Param({"10", "100", "1000", "10000"})
+    public int length;
+
+    @Param({"0.05", "0.2", "0.5"})
+    public double errorRate;
+
+    @Param({"100", "10000"})
+    public int vocabularySize;
+
+    private final WordSequenceAligner aligner = new WordSequenceAligner();
+    private String[] groundTruth;
+    private String[] groundTruths;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(vocabularySize, 42);
+        String[] reference = corpus.reference(length);
+        String[] variant = corpus.hypothesis(reference, 0.01);
+        groundTruth = new String[]{SyntheticCorpus.text(reference)};
+        groundTruths = new String[]{SyntheticCorpus.text(reference), SyntheticCorpus.text(variant)};
+        text = SyntheticCorpus.text(corpus.hypothesis(reference, errorRate)) + ".";
+    }
+
+    @Benchmark
+    public float calcWer() {
+        return aligner.wordErrorRate(groundTruth, text);
+    }
+
+    @Benchmark
+    public float calcWerMultiReference() {
+        return aligner.wordErrorRate(groundTruths, text);
+    }
+}
@@ -0,0 +1,95 @@
+package com.mozilla.speechlibrary.benchmark;
+
+import com.mozilla.speechlibrary.EnergyVad;
+import com.mozilla.speechlibrary.SyntheticSpeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the pure Java voice activity detector, in frames per second, fed frame by frame from the heap
+ * and from a direct buffer, and in batches. Real time is 100, 50 or 33 frames per second.
+ * The WebRTC detector needs its native library and is measured on a device by VadThroughputTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EnergyVadBenchmark {
+
+    private static final int SECONDS = 10;
+    private static final int BATCH = 50;
+
+    @Param({"10", "20", "30"})
+    public int frameDuration;
+
+    @Param({"0", "3"})
+    public int mode;
+
+    @Param({"60", "1000"})
+    public double noise;
+
+    private final EnergyVad vad = new EnergyVad();
+    private short[] audio;
+    private short[] frame;
+    private ByteBuffer direct;
+    private byte[] decisions;
+    private int frameLength;
+    private int position;
+
+    @Setup
+    public void setUp() {
+        audio = SyntheticSpeech.generate(SECONDS, noise, 42);
+        frameLength = SyntheticSpeech.SAMPLE_RATE * frameDuration / 1000;
+        frame = new short[frameLength];
+        direct = ByteBuffer.allocateDirect(frameLength * 2).order(ByteOrder.nativeOrder());
+        decisions = new byte[BATCH];
+        vad.start(mode);
+    }
+
+    @Benchmark
+    public int feed() {
+        System.arraycopy(audio, nextFrame(), frame, 0, frameLength);
+        return vad.feed(frame, frameLength);
+    }
+
+    @Benchmark
+    public int feedDirect() {
+        int start = nextFrame();
+        for (int i = 0; i < frameLength; i++) {
+            direct.putShort(i * 2, audio[start + i]);
+        }
+        return vad.feedDirect(direct, frameLength);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int feedFrames() {
+        int length = BATCH * frameLength;
+        if (position + length > audio.length) {
+            position = 0;
+        }
+        int start = position;
+        position += length;
+        return vad.feedFrames(audio, start, frameLength, BATCH, decisions);
+    }
+
+    private int nextFrame() {
+        if (position + frameLength > audio.length) {
+            position = 0;
+        }
+        int start = position;
+        position += frameLength;
+        return start;
+    }
+}
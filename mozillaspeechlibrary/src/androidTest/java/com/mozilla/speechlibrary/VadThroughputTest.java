@@ -0,0 +1,98 @@
+package com.mozilla.speechlibrary;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures how many frames per second the WebRTC and the pure Java detector classify on the device,
+ * fed frame by frame from the heap and from a direct buffer, and in batches. Results are logged under
+ * the tag of this class; real time is 100, 50 or 33 frames per second.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VadThroughputTest {
+
+    private static final String TAG = "VadThroughputTest";
+    private static final int SAMPLE_RATE = SyntheticSpeech.SAMPLE_RATE;
+    private static final int SECONDS = 10;
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+    private static final int BATCH = 50;
+
+    // Far below what either detector manages, so that only a broken build fails
+    private static final double MIN_REAL_TIME_FACTOR = 10;
+
+    // The same audio as in the JMH benchmark
+    private final short[] mAudio = SyntheticSpeech.generate(SECONDS, 60, 42);
+
+    @Test
+    public void webRtcVad_throughput() {
+        measure("webrtc", new Vad());
+    }
+
+    @Test
+    public void energyVad_throughput() {
+        measure("java", new EnergyVad());
+    }
+
+    private void measure(String name, VoiceActivityDetector vad) {
+        assertEquals(0, vad.start(VoiceActivityDetector.MODE_VERY_AGGRESSIVE));
+        try {
+            for (int duration : new int[] {10, 20, 30}) {
+                int frameLength = SAMPLE_RATE * duration / 1000;
+                short[] frame = new short[frameLength];
+                ByteBuffer direct = ByteBuffer.allocateDirect(frameLength * 2).order(ByteOrder.nativeOrder());
+                ShortBuffer directSamples = direct.asShortBuffer();
+                byte[] decisions = new byte[BATCH];
+                int frames = mAudio.length / frameLength;
+                int batches = frames / BATCH;
+
+                long heap = 0, fromDirect = 0, batched = 0;
+                for (int round = 0; round < WARM_UP_ROUNDS + ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    for (int f = 0; f < frames; f++) {
+                        System.arraycopy(mAudio, f * frameLength, frame, 0, frameLength);
+                        assertTrue(vad.feed(frame, frameLength) >= 0);
+                    }
+                    long afterHeap = System.nanoTime();
+                    for (int f = 0; f < frames; f++) {
+                        directSamples.clear();
+                        directSamples.put(mAudio, f * frameLength, frameLength);
+                        assertTrue(vad.feedDirect(direct, frameLength) >= 0);
+                    }
+                    long afterDirect = System.nanoTime();
+                    for (int b = 0; b < batches; b++) {
+                        assertTrue(vad.feedFrames(mAudio, b * BATCH * frameLength, frameLength, BATCH, decisions) >= 0);
+                    }
+                    long end = System.nanoTime();
+                    if (round >= WARM_UP_ROUNDS) {
+                        heap += afterHeap - start;
+                        fromDirect += afterDirect - afterHeap;
+                        batched += end - afterDirect;
+                    }
+                }
+
+                double realTime = 1000.0 / duration;
+                double heapRate = rate(frames, heap);
+                Log.i(TAG, String.format("%s %d ms: feed %.0f, feedDirect %.0f, feedFrames %.0f frames/s",
+                        name, duration, heapRate, rate(frames, fromDirect), rate(batches * BATCH, batched)));
+                assertTrue(heapRate > MIN_REAL_TIME_FACTOR * realTime);
+            }
+        } finally {
+            vad.stop();
+        }
+    }
+
+    private static double rate(int frames, long nanos) {
+        return frames * ROUNDS * 1e9 / nanos;
+    }
+}
@@ -4,36 +4,70 @@
 #include "webrtc/common_audio/include/typedefs.h"
 #include <jni.h>
 
-#define AGGRESSIVENESS 3
-VadInst* internalHandle;
-int resultVad;
-
-JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_start (JNIEnv * env, jobject obj){
-    int ret_state = 0;
-    internalHandle = NULL;
-
-    ret_state = WebRtcVad_Create(&internalHandle);
-    if (ret_state == -1) return -1;
-    ret_state =  WebRtcVad_Init(internalHandle);
-    if (ret_state == -1) return -2;
-    ret_state = WebRtcVad_set_mode(internalHandle, AGGRESSIVENESS);
-    if (ret_state == -1) return -3;
-    return ret_state;
+// Every Vad instance owns its VadInst, passed in as a jlong, so instances can run on different threads.
+
+JNIEXPORT jlong JNICALL Java_com_mozilla_speechlibrary_Vad_nativeCreate(JNIEnv * env, jclass clazz) {
+    VadInst* handle = NULL;
+    if (WebRtcVad_Create(&handle) == -1) return 0;
+    return (jlong) (intptr_t) handle;
 }
 
-JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_stop(JNIEnv * env, jobject object) {
-    if (WebRtcVad_Free(internalHandle) == 0) {
-        internalHandle = NULL;
-    }
+JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_nativeInit(JNIEnv * env, jclass clazz, jlong handle, jint mode) {
+    VadInst* vad = (VadInst*) (intptr_t) handle;
+    if (vad == NULL) return -1;
+    if (WebRtcVad_Init(vad) == -1) return -2;
+    if (WebRtcVad_set_mode(vad, mode) == -1) return -3;
+    return 0;
 }
 
-JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_isSilence(JNIEnv * env, jobject object) {
-    return resultVad;
+JNIEXPORT void JNICALL Java_com_mozilla_speechlibrary_Vad_nativeFree(JNIEnv * env, jclass clazz, jlong handle) {
+    VadInst* vad = (VadInst*) (intptr_t) handle;
+    if (vad != NULL) {
+        WebRtcVad_Free(vad);
+    }
 }
 
-JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_feed(JNIEnv * env, jobject object, jshortArray bytes, jint size) {
+JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_nativeFeed(JNIEnv * env, jclass clazz, jlong handle, jshortArray bytes, jint size) {
+    VadInst* vad = (VadInst*) (intptr_t) handle;
+    if (vad == NULL) return -1;
     jshort *arrayElements = (*env)->GetShortArrayElements(env, bytes, 0);
-    resultVad = WebRtcVad_Process(internalHandle, 16000, arrayElements, size);
-    (*env)->ReleaseShortArrayElements(env, bytes, arrayElements, 0);
-    return resultVad;
-}
\ No newline at end of file
+    int result = WebRtcVad_Process(vad, 16000, arrayElements, size);
+    // The samples are only read, nothing needs to be copied back
+    (*env)->ReleaseShortArrayElements(env, bytes, arrayElements, JNI_ABORT);
+    return result;
+}
+
+JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_nativeFeedDirect(JNIEnv * env, jclass clazz, jlong handle, jobject buffer, jint size) {
+    VadInst* vad = (VadInst*) (intptr_t) handle;
+    int16_t *samples = (int16_t *) (*env)->GetDirectBufferAddress(env, buffer);
+    if (vad == NULL || samples == NULL || size < 0 || (*env)->GetDirectBufferCapacity(env, buffer) < (jlong) size * 2) {
+        return -1;
+    }
+    return WebRtcVad_Process(vad, 16000, samples, size);
+}
+
+JNIEXPORT jint JNICALL Java_com_mozilla_speechlibrary_Vad_nativeFeedFrames(JNIEnv * env, jclass clazz, jlong handle, jshortArray bytes,
+                                                                           jint offset, jint frameLength, jint frameCount, jbyteArray decisions) {
+    VadInst* vad = (VadInst*) (intptr_t) handle;
+    if (vad == NULL) return -1;
+
+    // The VAD neither blocks nor calls back into Java, so the arrays can be accessed in place
+    jshort *samples = (jshort *) (*env)->GetPrimitiveArrayCritical(env, bytes, 0);
+    jbyte *results = (jbyte *) (*env)->GetPrimitiveArrayCritical(env, decisions, 0);
+    if (samples == NULL || results == NULL) {
+        if (results != NULL) (*env)->ReleasePrimitiveArrayCritical(env, decisions, results, JNI_ABORT);
+        if (samples != NULL) (*env)->ReleasePrimitiveArrayCritical(env, bytes, samples, JNI_ABORT);
+        return -1;
+    }
+
+    int voiced = 0;
+    for (int i = 0; i < frameCount; i++) {
+        int result = WebRtcVad_Process(vad, 16000, samples + offset + i * frameLength, frameLength);
+        results[i] = (jbyte) result;
+        if (result == 1) voiced++;
+    }
+
+    (*env)->ReleasePrimitiveArrayCritical(env, decisions, results, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, bytes, samples, JNI_ABORT);
+    return voiced;
+}
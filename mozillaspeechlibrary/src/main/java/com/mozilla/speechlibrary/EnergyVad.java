@@ -0,0 +1,193 @@
+package com.mozilla.speechlibrary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Voice activity detector in plain Java, for unit tests, batch tools and devices where the JNI call per
+ * frame matters.
+ *
+ * Every frame is scored by its energy over an adaptive noise floor, by the spectral flux over five octave
+ * bands of an integer Haar decomposition and by its zero-crossing rate, which rejects hiss. Every frame is
+ * decided on its own, without a hangover: holding voice over short gaps is left to the endpointer, so that its
+ * timings are the configured ones. All arithmetic is fixed-point and nothing is allocated after construction.
+ * Levels are kept as log2 of the mean power in 1/256 steps, so one step of 256 is about 3 dB.
+ */
+public class EnergyVad implements VoiceActivityDetector {
+
+    // Longest frame: 30 ms at 16 kHz
+    public static final int MAX_FRAME_LENGTH = 480;
+
+    private static final int BANDS = 5;
+
+    // Minimum level over the noise floor for voice, by mode: 6, 7.5, 9 and 12 dB
+    private static final int[] THRESHOLDS = {512, 640, 768, 1024};
+
+    // Frames with an onset this steep across the bands need only half the level
+    private static final int FLUX_THRESHOLD = 3 << 8;
+
+    // Nothing below about -60 dBFS is voice, whatever the floor: a mean power of 2^10, i.e. an RMS of 32
+    private static final int MIN_LEVEL = 10 << 8;
+
+    // Frames used to find the initial noise floor, in samples
+    private static final int INIT_SAMPLES = 1600;
+
+    private final int[] mSamples = new int[MAX_FRAME_LENGTH];
+    private final int[] mBands = new int[BANDS];
+    private final int[] mPreviousBands = new int[BANDS];
+
+    private boolean mStarted;
+    private int mThreshold;
+    private int mNoiseFloor;
+    private int mInitSamples;
+
+    @Override
+    public int start(int mode) {
+        if (mode < MODE_QUALITY || mode > MODE_VERY_AGGRESSIVE) {
+            return -3;
+        }
+        mThreshold = THRESHOLDS[mode];
+        mNoiseFloor = 0;
+        mInitSamples = INIT_SAMPLES;
+        for (int b = 0; b < BANDS; b++) {
+            mPreviousBands[b] = 0;
+        }
+        mStarted = true;
+        return 0;
+    }
+
+    @Override
+    public int feed(short[] x, int n) {
+        if (!isValid(n) || n > x.length) {
+            return -1;
+        }
+        return classify(x, 0, n);
+    }
+
+    @Override
+    public int feedDirect(ByteBuffer buffer, int n) {
+        if (!isValid(n) || n * 2 > buffer.capacity()) {
+            return -1;
+        }
+        for (int i = 0; i < n; i++) {
+            mSamples[i] = buffer.getShort(i * 2);
+        }
+        return classify(n);
+    }
+
+    @Override
+    public int feedFrames(short[] x, int offset, int frameLength, int frameCount, byte[] decisions) {
+        if (offset < 0 || frameLength <= 0 || frameCount < 0
+                || (long) frameLength * frameCount > x.length - offset
+                || frameCount > decisions.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (!mStarted) {
+            return -1;
+        }
+        int voiced = 0;
+        for (int f = 0; f < frameCount; f++) {
+            int decision = isValid(frameLength) ? classify(x, offset + f * frameLength, frameLength) : -1;
+            decisions[f] = (byte) decision;
+            if (decision == 1) {
+                voiced++;
+            }
+        }
+        return voiced;
+    }
+
+    @Override
+    public int stop() {
+        mStarted = false;
+        return 0;
+    }
+
+    private boolean isValid(int n) {
+        return mStarted && n >= 2 && n <= MAX_FRAME_LENGTH;
+    }
+
+    private int classify(short[] x, int offset, int n) {
+        for (int i = 0; i < n; i++) {
+            mSamples[i] = x[offset + i];
+        }
+        return classify(n);
+    }
+
+    private int classify(int n) {
+        int[] s = mSamples;
+
+        long energy = 0;
+        int crossings = 0;
+        int previous = s[0];
+        for (int i = 0; i < n; i++) {
+            int v = s[i];
+            energy += (long) v * v;
+            if ((v ^ previous) < 0) {
+                crossings++;
+            }
+            previous = v;
+        }
+        int level = log2(energy / n);
+
+        // Octave bands from the top down: the details of each Haar level, then what is left of the average
+        int length = n;
+        for (int b = 0; b < BANDS - 1 && length >= 2; b++) {
+            int half = length >> 1;
+            long detail = 0;
+            for (int i = 0; i < half; i++) {
+                int a = s[2 * i];
+                int c = s[2 * i + 1];
+                int d = (a - c) >> 1;
+                s[i] = (a + c) >> 1;
+                detail += (long) d * d;
+            }
+            mBands[b] = log2(detail / half);
+            length = half;
+        }
+        long rest = 0;
+        for (int i = 0; i < length; i++) {
+            rest += (long) s[i] * s[i];
+        }
+        mBands[BANDS - 1] = log2(rest / length);
+
+        int flux = 0;
+        for (int b = 0; b < BANDS; b++) {
+            flux += Math.max(0, mBands[b] - mPreviousBands[b]);
+            mPreviousBands[b] = mBands[b];
+        }
+
+        if (mInitSamples > 0) {
+            mNoiseFloor = mInitSamples == INIT_SAMPLES ? level : Math.min(mNoiseFloor, level);
+            mInitSamples -= n;
+            return 0;
+        }
+
+        int above = level - mNoiseFloor;
+        boolean voice = level > MIN_LEVEL
+                && (above > mThreshold || (above > mThreshold / 2 && flux > FLUX_THRESHOLD));
+        if (voice && crossings * 2 > n && above < 2 * mThreshold) {
+            // Mostly high frequencies and not much louder than the floor: hiss, not speech
+            voice = false;
+        }
+
+        // The floor follows falling levels quickly, rising ones slowly and hardly at all during voice
+        if (above < 0) {
+            mNoiseFloor += above >> 1;
+        } else {
+            mNoiseFloor += above >> (voice ? 9 : 5);
+        }
+
+        return voice ? 1 : 0;
+    }
+
+    /**
+     * @return log2 of the value in 1/256 steps, with the fraction interpolated linearly; 0 for values below 1
+     */
+    static int log2(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        long mantissa = exponent >= 8 ? value >> (exponent - 8) : value << (8 - exponent);
+        return (exponent << 8) + (int) (mantissa & 0xff);
+    }
+}
@@ -17,6 +17,9 @@ public interface SpeechResultCallback {
     int MODEL_NOT_FOUND = 1;
 
     void onStartListen();
+    /**
+     * Microphone level in dB relative to full scale, sent only if enabled in the {@link SpeechServiceSettings}.
+     */
     void onMicActivity(double fftsum);
     void onDecoding();
     void onSTTResult(@Nullable STTResult result);
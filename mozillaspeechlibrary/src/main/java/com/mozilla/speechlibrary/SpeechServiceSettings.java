@@ -3,6 +3,8 @@ package com.mozilla.speechlibrary;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.mozilla.speechlibrary.recognition.Endpointer;
+
 import java.io.Serializable;
 
 public class SpeechServiceSettings implements Serializable {
@@ -13,6 +15,18 @@ public class SpeechServiceSettings implements Serializable {
     private String mProductTag;
     private boolean mUseDeepSpeech;
     private String mModelPath;
+    private boolean mUseMicActivity;
+    private int mMicActivityRate;
+    private boolean mUseMicActivitySpectrum;
+    private int mVadMode;
+    private int mVadFrameDuration;
+    private boolean mUseJavaVad;
+    private int mMinVoiceDuration;
+    private int mHangover;
+    private int mMinEndSilence;
+    private int mMaxEndSilence;
+    private int mMaxUtteranceDuration;
+    private Endpointer.Factory mEndpointerFactory;
 
     public SpeechServiceSettings(@NonNull Builder builder) {
         mUseStoreSamples = builder.storeSamples;
@@ -21,6 +35,18 @@ public class SpeechServiceSettings implements Serializable {
         mProductTag = builder.productTag;
         mUseDeepSpeech = builder.useDeepSpeech;
         mModelPath = builder.modelPath;
+        mUseMicActivity = builder.micActivity;
+        mMicActivityRate = builder.micActivityRate;
+        mUseMicActivitySpectrum = builder.micActivitySpectrum;
+        mVadMode = builder.vadMode;
+        mVadFrameDuration = builder.vadFrameDuration;
+        mUseJavaVad = builder.useJavaVad;
+        mMinVoiceDuration = builder.minVoiceDuration;
+        mHangover = builder.hangover;
+        mMinEndSilence = builder.minEndSilence;
+        mMaxEndSilence = builder.maxEndSilence;
+        mMaxUtteranceDuration = builder.maxUtteranceDuration;
+        mEndpointerFactory = builder.endpointerFactory;
     }
 
     public boolean useStoreSamples() {
@@ -50,6 +76,55 @@ public class SpeechServiceSettings implements Serializable {
         return mModelPath;
     }
 
+    public boolean useMicActivity() {
+        return mUseMicActivity;
+    }
+
+    public int getMicActivityRate() {
+        return mMicActivityRate;
+    }
+
+    public boolean useMicActivitySpectrum() {
+        return mUseMicActivitySpectrum;
+    }
+
+    public int getVadMode() {
+        return mVadMode;
+    }
+
+    public int getVadFrameDuration() {
+        return mVadFrameDuration;
+    }
+
+    public boolean useJavaVad() {
+        return mUseJavaVad;
+    }
+
+    public int getMinVoiceDuration() {
+        return mMinVoiceDuration;
+    }
+
+    public int getHangover() {
+        return mHangover;
+    }
+
+    public int getMinEndSilence() {
+        return mMinEndSilence;
+    }
+
+    public int getMaxEndSilence() {
+        return mMaxEndSilence;
+    }
+
+    public int getMaxUtteranceDuration() {
+        return mMaxUtteranceDuration;
+    }
+
+    @Nullable
+    public Endpointer.Factory getEndpointerFactory() {
+        return mEndpointerFactory;
+    }
+
     public static class Builder {
 
         private boolean storeSamples;
@@ -58,6 +133,18 @@ public class SpeechServiceSettings implements Serializable {
         private String productTag;
         private boolean useDeepSpeech;
         private String modelPath;
+        private boolean micActivity;
+        private int micActivityRate;
+        private boolean micActivitySpectrum;
+        private int vadMode;
+        private int vadFrameDuration;
+        private boolean useJavaVad;
+        private int minVoiceDuration;
+        private int hangover;
+        private int minEndSilence;
+        private int maxEndSilence;
+        private int maxUtteranceDuration;
+        private Endpointer.Factory endpointerFactory;
 
         public Builder() {
             storeSamples = false;
@@ -66,6 +153,18 @@ public class SpeechServiceSettings implements Serializable {
             productTag = "moz-android-speech-lib";
             useDeepSpeech = false;
             modelPath = null;
+            micActivity = false;
+            micActivityRate = 15;
+            micActivitySpectrum = false;
+            vadMode = VoiceActivityDetector.MODE_VERY_AGGRESSIVE;
+            vadFrameDuration = 20;
+            useJavaVad = false;
+            minVoiceDuration = 250;
+            hangover = 200;
+            minEndSilence = 500;
+            maxEndSilence = 1500;
+            maxUtteranceDuration = 10000;
+            endpointerFactory = null;
         }
 
         public Builder withStoreSamples(boolean storeSamples) {
@@ -98,6 +197,120 @@ public class SpeechServiceSettings implements Serializable {
             return this;
         }
 
+        /**
+         * Enables {@code SpeechResultCallback.onMicActivity} updates. Metering is skipped entirely when disabled.
+         */
+        public Builder withMicActivity(boolean micActivity){
+            this.micActivity = micActivity;
+            return this;
+        }
+
+        /**
+         * Sets how many mic activity updates are sent per second; frames in between are coalesced.
+         */
+        public Builder withMicActivityRate(int updatesPerSecond){
+            if (updatesPerSecond <= 0) {
+                throw new IllegalArgumentException("Rate must be positive");
+            }
+            this.micActivityRate = updatesPerSecond;
+            return this;
+        }
+
+        /**
+         * Reports the mean dB of the spectrum instead of the RMS level in dB.
+         */
+        public Builder withMicActivitySpectrum(boolean micActivitySpectrum){
+            this.micActivitySpectrum = micActivitySpectrum;
+            return this;
+        }
+
+        /**
+         * Sets the aggressiveness of the voice activity detection, from {@link VoiceActivityDetector#MODE_QUALITY}
+         * to {@link VoiceActivityDetector#MODE_VERY_AGGRESSIVE}. More aggressive modes report less noise as voice.
+         */
+        public Builder withVadMode(int vadMode){
+            if (vadMode < VoiceActivityDetector.MODE_QUALITY || vadMode > VoiceActivityDetector.MODE_VERY_AGGRESSIVE) {
+                throw new IllegalArgumentException("Invalid VAD mode: " + vadMode);
+            }
+            this.vadMode = vadMode;
+            return this;
+        }
+
+        /**
+         * Sets the length of the frames the microphone is read and classified in: 10, 20 or 30 ms.
+         */
+        public Builder withVadFrameDuration(int milliseconds){
+            if (milliseconds != 10 && milliseconds != 20 && milliseconds != 30) {
+                throw new IllegalArgumentException("Invalid VAD frame duration: " + milliseconds);
+            }
+            this.vadFrameDuration = milliseconds;
+            return this;
+        }
+
+        /**
+         * Uses the pure Java {@link EnergyVad} instead of the native WebRTC {@link Vad}.
+         */
+        public Builder withUseJavaVad(boolean useJavaVad){
+            this.useJavaVad = useJavaVad;
+            return this;
+        }
+
+        /**
+         * Sets how many milliseconds of voice start an utterance.
+         */
+        public Builder withMinVoiceDuration(int milliseconds){
+            if (milliseconds < 0) {
+                throw new IllegalArgumentException("Invalid voice duration: " + milliseconds);
+            }
+            this.minVoiceDuration = milliseconds;
+            return this;
+        }
+
+        /**
+         * Sets how many milliseconds of silence after voice still count as speech. Longer silence is a pause.
+         * {@link EnergyVad} has no hangover of its own; the WebRTC {@link Vad} holds voice for a few frames
+         * after speech, which comes on top of this.
+         */
+        public Builder withHangover(int milliseconds){
+            if (milliseconds < 0) {
+                throw new IllegalArgumentException("Invalid hangover: " + milliseconds);
+            }
+            this.hangover = milliseconds;
+            return this;
+        }
+
+        /**
+         * Sets the range of the silence, in milliseconds, that ends an utterance. Within it, the silence
+         * adapts to the longest pause of the speaker.
+         */
+        public Builder withEndSilence(int minMilliseconds, int maxMilliseconds){
+            if (minMilliseconds <= 0 || maxMilliseconds < minMilliseconds) {
+                throw new IllegalArgumentException("Invalid end silence: " + minMilliseconds + "-" + maxMilliseconds);
+            }
+            this.minEndSilence = minMilliseconds;
+            this.maxEndSilence = maxMilliseconds;
+            return this;
+        }
+
+        /**
+         * Sets after how many milliseconds listening stops, with or without speech.
+         */
+        public Builder withMaxUtteranceDuration(int milliseconds){
+            if (milliseconds <= 0) {
+                throw new IllegalArgumentException("Invalid utterance duration: " + milliseconds);
+            }
+            this.maxUtteranceDuration = milliseconds;
+            return this;
+        }
+
+        /**
+         * Replaces the default {@code AdaptiveEndpointer}; null restores it.
+         */
+        public Builder withEndpointer(@Nullable Endpointer.Factory endpointerFactory){
+            this.endpointerFactory = endpointerFactory;
+            return this;
+        }
+
         public SpeechServiceSettings build(){
             return new SpeechServiceSettings(this);
         }
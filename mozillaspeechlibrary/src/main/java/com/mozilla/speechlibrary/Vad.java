@@ -1,13 +1,104 @@
 package com.mozilla.speechlibrary;
 
-public class Vad {
+import java.nio.ByteBuffer;
+
+/**
+ * WebRTC voice activity detector, in native code. Every instance owns its native detector, so instances can be used on
+ * different threads at the same time. An instance itself is meant to be fed from one thread; stop() may
+ * come from another one and waits for a running feed to finish.
+ */
+public class Vad implements VoiceActivityDetector {
 
     static {
         System.loadLibrary("webrtc_jni");
     }
 
-    public native int start();
-    public native int feed(short[] x, int n);
-    protected native int isSilence();
-    public native int stop();
+    private long mHandle;
+    private int mResult;
+
+    public int start() {
+        return start(MODE_VERY_AGGRESSIVE);
+    }
+
+    /**
+     * @param mode one of {@link #MODE_QUALITY}, {@link #MODE_LOW_BITRATE}, {@link #MODE_AGGRESSIVE}
+     *             and {@link #MODE_VERY_AGGRESSIVE}
+     */
+    @Override
+    public synchronized int start(int mode) {
+        stop();
+        long handle = nativeCreate();
+        if (handle == 0) {
+            return -1;
+        }
+        int retVal = nativeInit(handle, mode);
+        if (retVal < 0) {
+            nativeFree(handle);
+            return retVal;
+        }
+        mHandle = handle;
+        return retVal;
+    }
+
+    @Override
+    public synchronized int feed(short[] x, int n) {
+        mResult = nativeFeed(mHandle, x, n);
+        return mResult;
+    }
+
+    /**
+     * Feeds a frame straight from a direct buffer, without copying it through the Java heap.
+     *
+     * @param buffer direct buffer holding the samples in native byte order, starting at index 0
+     * @param n number of samples
+     */
+    @Override
+    public synchronized int feedDirect(ByteBuffer buffer, int n) {
+        mResult = nativeFeedDirect(mHandle, buffer, n);
+        return mResult;
+    }
+
+    /**
+     * Classifies consecutive frames in one call, e.g. for audio read from a file much faster than real time.
+     *
+     * @param x samples
+     * @param offset first sample of the first frame
+     * @param frameLength samples per frame: 10, 20 or 30 ms, i.e. 160, 320 or 480
+     * @param frameCount number of frames
+     * @param decisions receives, per frame, 1 for voice, 0 for silence or -1 for an error
+     * @return number of frames with voice, or -1 if the detector is not started
+     */
+    @Override
+    public synchronized int feedFrames(short[] x, int offset, int frameLength, int frameCount, byte[] decisions) {
+        if (offset < 0 || frameLength <= 0 || frameCount < 0 || decisions.length < frameCount
+                || (long) frameLength * frameCount > x.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        int voiced = nativeFeedFrames(mHandle, x, offset, frameLength, frameCount, decisions);
+        if (voiced >= 0 && frameCount > 0) {
+            mResult = decisions[frameCount - 1];
+        }
+        return voiced;
+    }
+
+    protected synchronized int isSilence() {
+        return mResult;
+    }
+
+    @Override
+    public synchronized int stop() {
+        if (mHandle != 0) {
+            nativeFree(mHandle);
+            mHandle = 0;
+        }
+        return 0;
+    }
+
+    private static native long nativeCreate();
+    private static native int nativeInit(long handle, int mode);
+    private static native void nativeFree(long handle);
+    private static native int nativeFeed(long handle, short[] x, int n);
+    private static native int nativeFeedDirect(long handle, ByteBuffer buffer, int n);
+    private static native int nativeFeedFrames(long handle, short[] x, int offset, int frameLength, int frameCount,
+                                               byte[] decisions);
 }
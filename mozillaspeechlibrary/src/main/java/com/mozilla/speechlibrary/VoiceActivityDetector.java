@@ -0,0 +1,47 @@
+package com.mozilla.speechlibrary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classifies 16 kHz mono frames of 16 bit samples as voice or silence.
+ *
+ * Implementations keep state across frames and are fed from one thread at a time.
+ */
+public interface VoiceActivityDetector {
+
+    // Aggressiveness modes of the detector
+    int MODE_QUALITY = 0;
+    int MODE_LOW_BITRATE = 1;
+    int MODE_AGGRESSIVE = 2;
+    int MODE_VERY_AGGRESSIVE = 3;
+
+    /**
+     * Starts, or restarts, the detector.
+     *
+     * @param mode aggressiveness from {@link #MODE_QUALITY} to {@link #MODE_VERY_AGGRESSIVE}
+     * @return 0, or a negative value on error
+     */
+    int start(int mode);
+
+    /**
+     * @return 1 for voice, 0 for silence, -1 for an invalid frame or a detector that is not started
+     */
+    int feed(short[] x, int n);
+
+    /**
+     * Feeds a frame from a direct buffer holding the samples in native byte order, starting at index 0.
+     *
+     * @return 1 for voice, 0 for silence, -1 for an invalid frame or a detector that is not started
+     */
+    int feedDirect(ByteBuffer buffer, int n);
+
+    /**
+     * Classifies consecutive frames in one call.
+     *
+     * @param decisions receives, per frame, 1 for voice, 0 for silence or -1 for an error
+     * @return number of frames with voice, or -1 if the detector is not started
+     */
+    int feedFrames(short[] x, int offset, int frameLength, int frameCount, byte[] decisions);
+
+    int stop();
+}
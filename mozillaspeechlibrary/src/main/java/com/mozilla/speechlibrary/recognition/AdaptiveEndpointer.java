@@ -0,0 +1,107 @@
+package com.mozilla.speechlibrary.recognition;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Default endpointer.
+ *
+ * Speech starts once enough voice has been seen. Silence shorter than the hangover still counts as speech;
+ * longer silence is a pause. The silence that ends the utterance adapts to the speaker: it is half as long
+ * again as the longest pause so far, kept between a minimum and a maximum, so short commands end quickly
+ * while slow speakers are not cut off. Utterances are also ended at a maximum length.
+ */
+public class AdaptiveEndpointer implements Endpointer {
+
+    private final int mMinVoiceMs;
+    private final int mHangoverMs;
+    private final int mMinEndSilenceMs;
+    private final int mMaxEndSilenceMs;
+    private final int mMaxUtteranceMs;
+
+    // Limits in samples, set by start()
+    private long mMinVoice;
+    private long mHangover;
+    private long mMinEndSilence;
+    private long mMaxEndSilence;
+    private long mMaxUtterance;
+
+    private long mSamples;
+    private long mVoice;
+    private long mSilence;
+    private long mLongestPause;
+    private boolean mSpeech;
+
+    /**
+     * @param minVoiceMs voice needed before speech starts
+     * @param hangoverMs silence after voice that still counts as speech
+     * @param minEndSilenceMs shortest silence ending an utterance
+     * @param maxEndSilenceMs longest silence ending an utterance
+     * @param maxUtteranceMs length after which the utterance is ended anyway
+     */
+    public AdaptiveEndpointer(int minVoiceMs, int hangoverMs, int minEndSilenceMs, int maxEndSilenceMs,
+                              int maxUtteranceMs) {
+        mMinVoiceMs = minVoiceMs;
+        mHangoverMs = hangoverMs;
+        mMinEndSilenceMs = minEndSilenceMs;
+        mMaxEndSilenceMs = maxEndSilenceMs;
+        mMaxUtteranceMs = maxUtteranceMs;
+    }
+
+    @Override
+    public void start(int sampleRate) {
+        mMinVoice = toSamples(mMinVoiceMs, sampleRate);
+        mHangover = toSamples(mHangoverMs, sampleRate);
+        mMinEndSilence = toSamples(mMinEndSilenceMs, sampleRate);
+        mMaxEndSilence = toSamples(mMaxEndSilenceMs, sampleRate);
+        mMaxUtterance = toSamples(mMaxUtteranceMs, sampleRate);
+        mSamples = 0;
+        mVoice = 0;
+        mSilence = 0;
+        mLongestPause = 0;
+        mSpeech = false;
+    }
+
+    @Override
+    public int feed(boolean voice, @NonNull short[] samples, int n) {
+        if (n <= 0) {
+            return CONTINUE;
+        }
+        mSamples += n;
+        if (voice) {
+            if (mSpeech && mSilence > mHangover) {
+                mLongestPause = Math.max(mLongestPause, mSilence);
+            }
+            mSilence = 0;
+            mVoice += n;
+            if (mVoice >= mMinVoice) {
+                mSpeech = true;
+            }
+        } else if (mVoice > 0) {
+            mSilence += n;
+        }
+
+        if (mSpeech && mSilence >= getEndSilence()) {
+            return END_OF_SPEECH;
+        }
+        if (mSamples >= mMaxUtterance) {
+            return mSpeech ? END_OF_SPEECH : NO_SPEECH;
+        }
+        return CONTINUE;
+    }
+
+    @Override
+    public boolean isInSpeech() {
+        return mVoice > 0 && mSilence <= mHangover;
+    }
+
+    /**
+     * @return the silence in samples that currently ends the utterance
+     */
+    public long getEndSilence() {
+        return Math.min(mMaxEndSilence, Math.max(mMinEndSilence, mLongestPause * 3 / 2));
+    }
+
+    private static long toSamples(int ms, int sampleRate) {
+        return (long) ms * sampleRate / 1000;
+    }
+}
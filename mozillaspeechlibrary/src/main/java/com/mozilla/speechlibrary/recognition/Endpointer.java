@@ -0,0 +1,48 @@
+package com.mozilla.speechlibrary.recognition;
+
+import androidx.annotation.NonNull;
+
+import com.mozilla.speechlibrary.SpeechServiceSettings;
+
+import java.io.Serializable;
+
+/**
+ * Decides from the voice activity of the captured frames when an utterance has ended.
+ *
+ * Fed once per frame on the capture thread. Timing is counted in samples, so it is exact whatever the
+ * frame length and however late the frames are read.
+ */
+public interface Endpointer {
+
+    // Results of feed()
+    int CONTINUE = 0;
+    int END_OF_SPEECH = 1;
+    int NO_SPEECH = 2;
+
+    /**
+     * Starts a new utterance.
+     */
+    void start(int sampleRate);
+
+    /**
+     * @param voice whether the detector classified the frame as voice
+     * @param samples the frame
+     * @param n number of samples of the frame
+     * @return {@link #CONTINUE}, {@link #END_OF_SPEECH} or {@link #NO_SPEECH}
+     */
+    int feed(boolean voice, @NonNull short[] samples, int n);
+
+    /**
+     * @return whether the last frame belongs to speech, including the hangover after voice
+     */
+    boolean isInSpeech();
+
+    /**
+     * Creates the endpointer of a recognition; set with {@code SpeechServiceSettings.Builder.withEndpointer}.
+     */
+    interface Factory extends Serializable {
+
+        @NonNull
+        Endpointer create(@NonNull SpeechServiceSettings settings);
+    }
+}
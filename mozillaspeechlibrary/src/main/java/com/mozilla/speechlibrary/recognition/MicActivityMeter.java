@@ -0,0 +1,78 @@
+package com.mozilla.speechlibrary.recognition;
+
+import com.mozilla.speechlibrary.utils.SpectrumAnalyzer;
+
+/**
+ * Microphone level for the UI, coalesced to a fixed update rate.
+ *
+ * The energy of all frames since the last update is accumulated, so an update reports the RMS level of the
+ * whole interval in dB relative to full scale. Optionally the level is instead the mean dB of the spectrum,
+ * as in earlier versions; the spectrum is then computed only for the frame completing an interval.
+ */
+class MicActivityMeter {
+
+    // RMS floor of one quantization step, about -90 dB, so silence does not report -Infinity
+    private static final double MIN_RMS = 1.0 / 0x7fff;
+
+    private final int mSamplesPerUpdate;
+    private final SpectrumAnalyzer mSpectrum;
+    private final double[] mSpectrumDb;
+
+    private double mEnergy;
+    private int mEnergySamples;
+    // Samples since the last update, with the part of the frame beyond it carried over to keep the rate exact
+    private int mSamples;
+    private double mLevel;
+
+    /**
+     * @param sampleRate samples per second
+     * @param updateRate updates per second
+     * @param spectrum whether to report the mean of the spectrum instead of the RMS level
+     * @param maxFrameLength largest number of samples per frame
+     */
+    MicActivityMeter(int sampleRate, int updateRate, boolean spectrum, int maxFrameLength) {
+        mSamplesPerUpdate = Math.max(1, sampleRate / Math.max(1, updateRate));
+        mSpectrum = spectrum ? new SpectrumAnalyzer(maxFrameLength) : null;
+        mSpectrumDb = spectrum ? new double[SpectrumAnalyzer.binCount(maxFrameLength)] : null;
+    }
+
+    /**
+     * Accumulates a frame.
+     *
+     * @return whether an update is due; its level is available from {@link #getLevel()}
+     */
+    boolean feed(short[] frame, int len) {
+        if (len <= 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            double sample = frame[i];
+            mEnergy += sample * sample;
+        }
+        mEnergySamples += len;
+        mSamples += len;
+        if (mSamples < mSamplesPerUpdate) {
+            return false;
+        }
+
+        if (mSpectrum != null) {
+            int bins = mSpectrum.powerDb(frame, 0, len, mSpectrumDb);
+            double sum = 0;
+            for (int i = 0; i < bins; i++) {
+                sum += mSpectrumDb[i];
+            }
+            mLevel = sum / bins;
+        } else {
+            double rms = Math.sqrt(mEnergy / mEnergySamples) / 0x7fff;
+            mLevel = 20 * Math.log10(Math.max(rms, MIN_RMS));
+        }
+        mEnergy = 0;
+        mEnergySamples = 0;
+        mSamples %= mSamplesPerUpdate;
+        return true;
+    }
+
+    double getLevel() {
+        return mLevel;
+    }
+}
@@ -9,24 +9,29 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.github.axet.audiolibrary.encoders.Sound;
+import com.mozilla.speechlibrary.EnergyVad;
 import com.mozilla.speechlibrary.SpeechResultReceiver;
 import com.mozilla.speechlibrary.SpeechState;
 import com.mozilla.speechlibrary.stt.STTResult;
 import com.mozilla.speechlibrary.Vad;
 import com.mozilla.speechlibrary.SpeechResultCallback;
 import com.mozilla.speechlibrary.SpeechServiceSettings;
+import com.mozilla.speechlibrary.VoiceActivityDetector;
+import com.mozilla.speechlibrary.stt.FramePool;
 import com.mozilla.speechlibrary.stt.STTClient;
 import com.mozilla.speechlibrary.stt.STTClientCallback;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
 
 public abstract class SpeechRecognition implements STTClientCallback {
 
     private static final int SAMPLE_RATE = 16000;
     private static final int CHANNELS = 1;
+    // Samples per 10 ms
     private static final int FRAME_SIZE = 160;
-    private static final int MAX_SILENCE = 1500;
-    private static final int MIN_VOICE = 250;
+    private static final int FRAME_POOL_SIZE = 8;
 
     @NonNull
     Context mContext;
@@ -34,9 +39,15 @@ public abstract class SpeechRecognition implements STTClientCallback {
     @NonNull
     private SpeechResultReceiver mReceiver;
     private SpeechResultCallback mDelegate;
-    private Vad mVad;
+    private VoiceActivityDetector mVad;
     private boolean mIsRunning;
     private AudioRecord mRecorder;
+    // Capture goes into native memory, where the VAD reads it without a copy
+    private ByteBuffer mFrameBuffer;
+    private ShortBuffer mFrameSamples;
+    private FramePool mFramePool;
+    private MicActivityMeter mMeter;
+    private Endpointer mEndpointer;
 
     SpeechRecognition(@NonNull Context context) {
         mContext = context;
@@ -47,12 +58,28 @@ public abstract class SpeechRecognition implements STTClientCallback {
         mDelegate = callback;
         mReceiver.addReceiver(mDelegate);
         mIsRunning = true;
-        mVad = new Vad();
+        mVad = settings.useJavaVad() ? new EnergyVad() : new Vad();
+
+        // One read per VAD frame
+        int frameSamples = FRAME_SIZE * CHANNELS * settings.getVadFrameDuration() / 10;
+        mFrameBuffer = ByteBuffer.allocateDirect(frameSamples * 2).order(ByteOrder.nativeOrder());
+        mFrameSamples = mFrameBuffer.asShortBuffer();
+        mFramePool = new FramePool(FRAME_POOL_SIZE, frameSamples);
+        mMeter = settings.useMicActivity()
+                ? new MicActivityMeter(SAMPLE_RATE, settings.getMicActivityRate(),
+                        settings.useMicActivitySpectrum(), frameSamples)
+                : null;
+        Endpointer.Factory endpointerFactory = settings.getEndpointerFactory();
+        mEndpointer = endpointerFactory != null
+                ? endpointerFactory.create(settings)
+                : new AdaptiveEndpointer(settings.getMinVoiceDuration(), settings.getHangover(),
+                        settings.getMinEndSilence(), settings.getMaxEndSilence(),
+                        settings.getMaxUtteranceDuration());
 
         boolean done = false;
 
         try {
-            int retVal = mVad.start();
+            int retVal = mVad.start(settings.getVadMode());
             if (retVal < 0) {
                 throw new Exception("Error Initializing VAD: " + retVal);
             }
@@ -61,63 +88,29 @@ public abstract class SpeechRecognition implements STTClientCallback {
                 return;
             }
 
-            long samplesVoice = 0;
-            long samplesSilence = 0;
-            boolean touchedVoice = false;
-            boolean touchedSilence = false;
-            int vad;
-            long dtantes = System.currentTimeMillis();
-            long dtantesmili = 	System.currentTimeMillis();
             boolean raisenovoice = false;
+            mEndpointer.start(SAMPLE_RATE);
 
             mRecorder = Sound.getAudioRecord(CHANNELS, SAMPLE_RATE);
             mRecorder.startRecording();
 
             mStt.initEncoding(SAMPLE_RATE);
+            mStt.setFramePool(mFramePool);
             mCallback.onStartListen();
 
             while (mIsRunning && !done) {
-                int nshorts = 0;
+                int nbytes = mRecorder.read(mFrameBuffer, mFrameBuffer.capacity());
+                int nshorts = nbytes > 0 ? nbytes / 2 : nbytes;
 
-                short[] mBufTemp = new short[FRAME_SIZE * CHANNELS * 2];
-                nshorts = mRecorder.read(mBufTemp, 0, mBufTemp.length);
+                int endpoint = processFrame(mFrameBuffer, mFrameSamples, nshorts, mVad, mFramePool, mMeter,
+                        mEndpointer, mStt, mCallback);
 
-                vad = mVad.feed(mBufTemp, nshorts);
-                double[] fft =  Sound.fft(mBufTemp, 0, nshorts);
-                double fftsum = Arrays.stream(fft).sum()/fft.length;
-
-                mCallback.onMicActivity(fftsum);
-
-                long dtdepois = System.currentTimeMillis();
-
-                if (vad == 0) {
-                    if (touchedVoice) {
-                        samplesSilence += dtdepois - dtantesmili;
-                        if (samplesSilence > MAX_SILENCE) touchedSilence = true;
-                    }
-
-                } else {
-                    samplesVoice  += dtdepois - dtantesmili;
-                    if (samplesVoice > MIN_VOICE) touchedVoice = true;
-
-                    for (int i = 0; i < mBufTemp.length; ++i) {
-                        mBufTemp[i] *= 5.0;
-                    }
-                }
-                dtantesmili = dtdepois;
-
-                mStt.encode(mBufTemp, 0, nshorts);
-
-                if (touchedVoice && touchedSilence) {
+                if (endpoint == Endpointer.END_OF_SPEECH) {
                     done = true;
-                }
 
-                int mUpperLimit = 10;
-                if ((dtdepois - dtantes)/1000 > mUpperLimit) {
+                } else if (endpoint == Endpointer.NO_SPEECH) {
                     done = true;
-                    if (!touchedVoice) {
-                        raisenovoice = true;
-                    }
+                    raisenovoice = true;
                 }
 
                 if (nshorts <= 0)
@@ -143,6 +136,47 @@ public abstract class SpeechRecognition implements STTClientCallback {
         }
     }
 
+    /**
+     * The work of the capture loop on one frame once it is read: classifies it, reports the microphone level,
+     * feeds the endpointer, amplifies speech and hands the samples to the STT client in a pooled buffer.
+     * Nothing here touches the Android framework, so unit tests can run it.
+     *
+     * @param frame direct buffer the frame was read into, with the samples in native byte order
+     * @param frameSamples view of the frame buffer as samples
+     * @param nshorts number of samples read, or the negative error of the read
+     * @param meter microphone level meter, or null if the level is not reported
+     * @return {@link Endpointer#CONTINUE}, {@link Endpointer#END_OF_SPEECH} or {@link Endpointer#NO_SPEECH}
+     */
+    static int processFrame(@NonNull ByteBuffer frame, @NonNull ShortBuffer frameSamples, int nshorts,
+                            @NonNull VoiceActivityDetector vad, @NonNull FramePool pool,
+                            @Nullable MicActivityMeter meter, @NonNull Endpointer endpointer,
+                            @NonNull STTClient stt, @NonNull SpeechResultCallback callback) {
+        int voice = vad.feedDirect(frame, nshorts);
+
+        // The STT engines and the spectrum take samples on the Java heap.
+        // Handed over to the STT client by encode(), which returns it to the pool
+        short[] samples = pool.acquire();
+        if (nshorts > 0) {
+            frameSamples.clear();
+            frameSamples.get(samples, 0, nshorts);
+        }
+        if (meter != null && meter.feed(samples, nshorts)) {
+            callback.onMicActivity(meter.getLevel());
+        }
+
+        int endpoint = endpointer.feed(voice > 0, samples, nshorts);
+
+        // Speech, including the hangover, is amplified as a whole, so short gaps keep the same gain
+        if (endpointer.isInSpeech()) {
+            for (int i = 0; i < samples.length; ++i) {
+                samples[i] *= 5.0;
+            }
+        }
+
+        stt.encode(samples, 0, nshorts);
+        return endpoint;
+    }
+
     private void releaseResources() {
         if (mRecorder != null) {
             try {
@@ -205,7 +239,7 @@ public abstract class SpeechRecognition implements STTClientCallback {
         @Override
         public void onMicActivity(double fftsum) {
             Bundle bundle = new Bundle();
-            bundle.putSerializable(SpeechResultReceiver.PARAM_FFT_SUM, fftsum);
+            bundle.putDouble(SpeechResultReceiver.PARAM_FFT_SUM, fftsum);
             mReceiver.send(SpeechState.MIC_ACTIVITY.ordinal(), bundle);
         }
 
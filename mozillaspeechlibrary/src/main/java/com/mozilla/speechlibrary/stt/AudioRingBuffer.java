@@ -0,0 +1,116 @@
+package com.mozilla.speechlibrary.stt;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-sized single-producer/single-consumer ring of audio samples.
+ *
+ * The capture thread copies every frame into the ring, so its frame buffer can be reused right away.
+ * The recognition thread drains the samples in batches and is parked while fewer samples than it asked
+ * for are available. Neither side allocates or takes a lock.
+ */
+class AudioRingBuffer {
+
+    private static final long FULL_WAIT_NANOS = 1_000_000;
+
+    private final short[] mSamples;
+    private final int mMask;
+
+    // Total number of samples written and read; only the producer advances the first, only the consumer the second
+    private final AtomicLong mWritten = new AtomicLong();
+    private final AtomicLong mRead = new AtomicLong();
+
+    private volatile boolean mClosed;
+    private volatile boolean mConsumerWaiting;
+    private volatile int mConsumerWanted;
+    private volatile Thread mConsumer;
+
+    /**
+     * @param capacity minimum number of samples the ring holds; rounded up to a power of two
+     */
+    AudioRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mSamples = new short[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * Copies samples into the ring. Called by the producer only; waits while the ring is full.
+     */
+    void write(short[] buffer, int pos, int len) {
+        long written = mWritten.get();
+        int done = 0;
+        while (done < len && !mClosed) {
+            int free = mSamples.length - (int) (written - mRead.get());
+            if (free == 0) {
+                if (mConsumerWaiting) {
+                    LockSupport.unpark(mConsumer);
+                }
+                LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+                continue;
+            }
+            int count = Math.min(len - done, free);
+            int start = (int) written & mMask;
+            int first = Math.min(count, mSamples.length - start);
+            System.arraycopy(buffer, pos + done, mSamples, start, first);
+            System.arraycopy(buffer, pos + done + first, mSamples, 0, count - first);
+            written += count;
+            done += count;
+            mWritten.set(written);
+        }
+        if (mConsumerWaiting && written - mRead.get() >= mConsumerWanted) {
+            LockSupport.unpark(mConsumer);
+        }
+    }
+
+    /**
+     * Ends the stream. The consumer still reads the samples written so far.
+     */
+    void close() {
+        mClosed = true;
+        Thread consumer = mConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Takes samples out of the ring. Called by the consumer only; parks until at least minCount samples
+     * are available or the ring is closed. A full ring also ends the wait.
+     *
+     * @return number of samples copied into the buffer, or -1 if the ring is closed and empty
+     */
+    int read(short[] buffer, int minCount, int maxCount) {
+        mConsumer = Thread.currentThread();
+        minCount = Math.min(minCount, mSamples.length);
+        long read = mRead.get();
+        long available = mWritten.get() - read;
+        while (available < minCount && !mClosed) {
+            mConsumerWanted = minCount;
+            mConsumerWaiting = true;
+            // Checked again after announcing the wait, so that a concurrent write cannot be missed
+            available = mWritten.get() - read;
+            if (available < minCount && !mClosed) {
+                LockSupport.park(this);
+            }
+            mConsumerWaiting = false;
+            available = mWritten.get() - read;
+        }
+        if (available < minCount) {
+            // Closed: everything written before closing is visible now
+            available = mWritten.get() - read;
+        }
+        if (available == 0) {
+            return -1;
+        }
+
+        int count = (int) Math.min(available, maxCount);
+        int start = (int) read & mMask;
+        int first = Math.min(count, mSamples.length - start);
+        System.arraycopy(mSamples, start, buffer, 0, first);
+        System.arraycopy(mSamples, 0, buffer, first, count - first);
+        mRead.set(read + count);
+        return count;
+    }
+}
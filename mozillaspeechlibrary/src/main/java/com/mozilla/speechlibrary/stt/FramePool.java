@@ -0,0 +1,46 @@
+package com.mozilla.speechlibrary.stt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fixed set of audio frame buffers shared by the capture loop and the {@link STTClient}.
+ *
+ * The capture loop acquires a frame for every read and hands it to {@link STTClient#encode(short[], int, int)},
+ * which releases it once the samples are consumed. In steady state the same buffers circulate and nothing is
+ * allocated. If every frame is still in use, a new one is allocated rather than stalling the capture.
+ */
+public class FramePool {
+
+    private final int mFrameSize;
+    private final ArrayBlockingQueue<short[]> mFrames;
+
+    /**
+     * @param frameCount number of frames kept in the pool
+     * @param frameSize number of samples per frame
+     */
+    public FramePool(int frameCount, int frameSize) {
+        mFrameSize = frameSize;
+        mFrames = new ArrayBlockingQueue<>(frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            mFrames.offer(new short[frameSize]);
+        }
+    }
+
+    public short[] acquire() {
+        short[] frame = mFrames.poll();
+        return frame != null ? frame : new short[mFrameSize];
+    }
+
+    /**
+     * Returns a frame to the pool. Frames of another size, or beyond the capacity of the pool, are dropped.
+     */
+    public void release(short[] frame) {
+        if (frame != null && frame.length == mFrameSize) {
+            mFrames.offer(frame);
+        }
+    }
+
+    public int getFrameSize() {
+        return mFrameSize;
+    }
+}
@@ -12,6 +12,7 @@ public abstract class STTBaseClient implements STTClient {
     SpeechServiceSettings mSettings;
     STTClientCallback mCallback;
     boolean mIsRunning;
+    FramePool mFramePool;
 
     STTBaseClient(@NonNull Context context,
                   @NonNull SpeechServiceSettings settings,
@@ -25,4 +26,15 @@ public abstract class STTBaseClient implements STTClient {
     public boolean isRunning() {
         return mIsRunning;
     }
+
+    @Override
+    public void setFramePool(FramePool pool) {
+        mFramePool = pool;
+    }
+
+    void releaseFrame(short[] buffer) {
+        if (mFramePool != null) {
+            mFramePool.release(buffer);
+        }
+    }
 }
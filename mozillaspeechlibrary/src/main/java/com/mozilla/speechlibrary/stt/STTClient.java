@@ -2,6 +2,11 @@ package com.mozilla.speechlibrary.stt;
 
 public interface STTClient {
     default void initEncoding(int sampleRate) {};
+    /**
+     * Sets the pool the frames passed to {@link #encode(short[], int, int)} come from. Clients using it
+     * release every frame once they have consumed its samples.
+     */
+    default void setFramePool(FramePool pool) {};
     default void encode(final short[] buffer, final int pos, final int len) {};
     default void endEncoding() {};
     default void process(){}
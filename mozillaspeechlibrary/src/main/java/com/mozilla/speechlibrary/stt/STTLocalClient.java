@@ -20,29 +20,33 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
 import java.nio.channels.FileChannel;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class STTLocalClient extends STTBaseClient implements Runnable {
 
     private static final String TAG = STTLocalClient.class.getSimpleName();
 
+    // 16 kHz samples: the ring holds about a minute of audio, DeepSpeech is fed at least 100 ms at a time
+    private static final int RING_CAPACITY = 1 << 20;
+    private static final int MIN_BATCH = 1600;
+    private static final int MAX_BATCH = 16000;
+
     private boolean mKeepClips = false;
     private DeepSpeechModel mModel;
     private DeepSpeechStreamingState mStreamingState;
     private FileChannel clipDebug;
-    private Queue<short[]> mBuffers;
-    private boolean mEndOfStream;
+    private final AudioRingBuffer mBuffers;
 
     public STTLocalClient(@NonNull Context context,
                    @NonNull SpeechServiceSettings settings,
                    @NonNull STTClientCallback callback) {
         super(context, settings, callback);
 
+        mBuffers = new AudioRingBuffer(RING_CAPACITY);
+
         String modelRoot = settings.getModelPath();
         if (!ModelUtils.isReady(modelRoot)) {
             mIsRunning = false;
-            mEndOfStream = true;
+            mBuffers.close();
             mCallback.onSTTError("STT Error: Model not ready");
             return;
         }
@@ -60,7 +64,7 @@ public class STTLocalClient extends STTBaseClient implements Runnable {
 
         } catch (Exception e) {
             mIsRunning = false;
-            mEndOfStream = true;
+            mBuffers.close();
             mCallback.onSTTError("STT Error");
             return;
         }
@@ -92,17 +96,19 @@ public class STTLocalClient extends STTBaseClient implements Runnable {
 
         mStreamingState = mModel.createStream();
         mIsRunning = true;
-        mEndOfStream = false;
     }
 
     @Override
     public void encode(final short[] aBuffer, final int pos, final int len) {
-        mBuffers.add(aBuffer);
+        if (len > 0) {
+            mBuffers.write(aBuffer, pos, len);
+        }
+        releaseFrame(aBuffer);
     }
 
     @Override
     public void process() {
-        mEndOfStream = true;
+        mBuffers.close();
     }
 
     private void closeModel() {
@@ -129,24 +135,25 @@ public class STTLocalClient extends STTBaseClient implements Runnable {
 
     @Override
     public void run() {
-        mBuffers = new ConcurrentLinkedQueue<>();
-
-        while (!mEndOfStream || mBuffers.size() > 0) {
-            short[] aBuffer = mBuffers.poll();
-
-            if (aBuffer == null) {
-                continue;
-            }
+        short[] aBuffer = new short[MAX_BATCH];
+        ByteBuffer myByteBuffer = null;
+        ShortBuffer myShortBuffer = null;
+        if (mKeepClips) {
+            myByteBuffer = ByteBuffer.allocate(MAX_BATCH * 2);
+            myByteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            myShortBuffer = myByteBuffer.asShortBuffer();
+        }
 
-            this.mModel.feedAudioContent(mStreamingState, aBuffer, aBuffer.length);
+        int len;
+        while ((len = mBuffers.read(aBuffer, MIN_BATCH, MAX_BATCH)) > 0) {
+            this.mModel.feedAudioContent(mStreamingState, aBuffer, len);
 
             // DEBUG
             if (mKeepClips) {
-                ByteBuffer myByteBuffer = ByteBuffer.allocate(aBuffer.length * 2);
-                myByteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-
-                ShortBuffer myShortBuffer = myByteBuffer.asShortBuffer();
-                myShortBuffer.put(aBuffer);
+                myShortBuffer.clear();
+                myShortBuffer.put(aBuffer, 0, len);
+                myByteBuffer.position(0);
+                myByteBuffer.limit(len * 2);
 
                 try {
                     clipDebug.write(myByteBuffer);
@@ -87,7 +87,10 @@ public class STTNetworkClient extends STTBaseClient {
 
     @Override
     public void encode(final short[] buffer, final int pos, final int len) {
-        mEncoder.encode(buffer, pos, len);
+        if (len > 0) {
+            mEncoder.encode(buffer, pos, len);
+        }
+        releaseFrame(buffer);
     }
 
     @Override
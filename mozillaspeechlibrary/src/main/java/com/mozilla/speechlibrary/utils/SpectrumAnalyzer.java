@@ -0,0 +1,132 @@
+package com.mozilla.speechlibrary.utils;
+
+/**
+ * Power spectrum of 16 bit audio frames, in the same scale as {@code Sound.fft}, without allocating per frame.
+ *
+ * A frame is zero-padded to the next power of two n and transformed as a complex FFT of length n / 2 whose
+ * real and imaginary parts are the even and odd samples; the spectrum of the real signal is then split off
+ * from it. The twiddle factors and the bit-reversal permutation are tabulated once for the largest size; smaller
+ * sizes use every k-th twiddle and shifted permutation entries. Scratch space is owned by the instance and the
+ * result goes to a buffer of the caller, so instances are not thread-safe.
+ */
+public class SpectrumAnalyzer {
+
+    private static final int MIN_SIZE = 4;
+
+    private final int mSize;
+    private final double[] mCos;
+    private final double[] mSin;
+    private final int[] mBitReverse;
+    private final double[] mRe;
+    private final double[] mIm;
+
+    /**
+     * @param maxFrameLength largest number of samples per frame
+     */
+    public SpectrumAnalyzer(int maxFrameLength) {
+        mSize = paddedLength(maxFrameLength);
+        mCos = new double[mSize / 2];
+        mSin = new double[mSize / 2];
+        for (int k = 0; k < mSize / 2; k++) {
+            double angle = 2 * Math.PI * k / mSize;
+            mCos[k] = Math.cos(angle);
+            mSin[k] = Math.sin(angle);
+        }
+        int bits = Integer.numberOfTrailingZeros(mSize / 2);
+        mBitReverse = new int[mSize / 2];
+        for (int k = 0; k < mSize / 2; k++) {
+            mBitReverse[k] = bits == 0 ? 0 : Integer.reverse(k) >>> (32 - bits);
+        }
+        mRe = new double[mSize / 2];
+        mIm = new double[mSize / 2];
+    }
+
+    /**
+     * @return largest number of samples per frame
+     */
+    public int getMaxFrameLength() {
+        return mSize;
+    }
+
+    /**
+     * @return number of bins written by {@link #powerDb(short[], int, int, double[])} for frames of the given length
+     */
+    public static int binCount(int len) {
+        return len <= 0 ? 0 : paddedLength(len) / 2;
+    }
+
+    /**
+     * Computes the power of the lower half of the spectrum in dB, relative to full scale.
+     *
+     * @param buffer samples
+     * @param offset first sample of the frame
+     * @param len number of samples of the frame, at most the maximum frame length
+     * @param out receives the power of each bin; needs {@link #binCount(int)} entries
+     * @return number of bins written
+     */
+    public int powerDb(short[] buffer, int offset, int len, double[] out) {
+        if (len <= 0) {
+            return 0;
+        }
+        final int n = paddedLength(len);
+        if (n > mSize) {
+            throw new IllegalArgumentException("Frame longer than " + mSize);
+        }
+        final int half = n / 2;
+        final int stride = mSize / n;
+        final double[] re = mRe;
+        final double[] im = mIm;
+
+        // Even samples as real, odd samples as imaginary part, in bit-reversed order
+        for (int k = 0; k < half; k++) {
+            int j = mBitReverse[k * stride];
+            re[j] = sample(buffer, offset, len, 2 * k);
+            im[j] = sample(buffer, offset, len, 2 * k + 1);
+        }
+
+        // Iterative radix-2 FFT of length half
+        for (int m = 2; m <= half; m <<= 1) {
+            int h = m >> 1;
+            int step = mSize / m;
+            for (int s = 0; s < half; s += m) {
+                for (int j = 0; j < h; j++) {
+                    double wr = mCos[j * step];
+                    double wi = -mSin[j * step];
+                    int a = s + j;
+                    int b = a + h;
+                    double tr = wr * re[b] - wi * im[b];
+                    double ti = wr * im[b] + wi * re[b];
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+
+        // Split into the spectrum of the real frame: X[k] = E[k] + W^k O[k]
+        final double scale = 1.0 / ((double) n * n);
+        for (int k = 0; k < half; k++) {
+            int c = (half - k) & (half - 1);
+            double ar = re[k], ai = im[k];
+            double br = re[c], bi = -im[c];
+            double er = (ar + br) / 2, ei = (ai + bi) / 2;
+            double or = (ai - bi) / 2, oi = -(ar - br) / 2;
+            double wr = mCos[k * stride];
+            double wi = -mSin[k * stride];
+            double xr = er + wr * or - wi * oi;
+            double xi = ei + wr * oi + wi * or;
+            double p = (xr * xr + xi * xi) * scale;
+            out[k] = 10 * Math.log10(k == 0 ? p : 2 * p);
+        }
+        return half;
+    }
+
+    private static double sample(short[] buffer, int offset, int len, int i) {
+        return i < len ? buffer[offset + i] / (float) 0x7fff : 0;
+    }
+
+    private static int paddedLength(int len) {
+        return Math.max(MIN_SIZE, Integer.highestOneBit(Math.max(1, len - 1)) << 1);
+    }
+}
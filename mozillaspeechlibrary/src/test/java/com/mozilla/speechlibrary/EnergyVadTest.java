@@ -0,0 +1,109 @@
+package com.mozilla.speechlibrary;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the pure Java detector on noise with voiced bursts, which needs no device or native library.
+ */
+public class EnergyVadTest {
+
+    private static final int SAMPLE_RATE = SyntheticSpeech.SAMPLE_RATE;
+    private static final int FRAME = 320;
+
+    @Test
+    public void bursts_areDetectedAsVoice() {
+        short[] audio = SyntheticSpeech.generate(4, 100, 7);
+        for (int mode = VoiceActivityDetector.MODE_QUALITY; mode <= VoiceActivityDetector.MODE_VERY_AGGRESSIVE; mode++) {
+            EnergyVad vad = new EnergyVad();
+            assertEquals(0, vad.start(mode));
+            int voiceInBursts = 0, voiceInNoise = 0, bursts = 0, noise = 0;
+            short[] frame = new short[FRAME];
+            for (int start = 0; start + FRAME <= audio.length; start += FRAME) {
+                System.arraycopy(audio, start, frame, 0, FRAME);
+                int decision = vad.feed(frame, FRAME);
+                // Skips the frames that set the initial noise floor
+                if (start < SAMPLE_RATE / 10) {
+                    continue;
+                }
+                // Syllables fade out in the troughs of the envelope, where either decision is right;
+                // there is no hangover, so noise right after a burst must already be silence
+                double envelope = minEnvelope(start);
+                if (envelope >= 0.2) {
+                    bursts++;
+                    voiceInBursts += decision;
+                } else if (!SyntheticSpeech.isBurst(start) && !SyntheticSpeech.isBurst(start + FRAME - 1)) {
+                    noise++;
+                    voiceInNoise += decision;
+                }
+            }
+            assertEquals("Mode " + mode, bursts, voiceInBursts);
+            assertTrue(noise > 0);
+            assertEquals("Mode " + mode, 0, voiceInNoise);
+        }
+    }
+
+    @Test
+    public void digitalSilence_isNotVoice() {
+        EnergyVad vad = new EnergyVad();
+        vad.start(VoiceActivityDetector.MODE_QUALITY);
+        short[] frame = new short[FRAME];
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, vad.feed(frame, FRAME));
+        }
+    }
+
+    @Test
+    public void feedDirectAndFeedFrames_matchFeed() {
+        short[] audio = SyntheticSpeech.generate(3, 300, 7);
+        int frames = audio.length / FRAME;
+
+        EnergyVad heap = new EnergyVad();
+        EnergyVad direct = new EnergyVad();
+        EnergyVad batched = new EnergyVad();
+        heap.start(VoiceActivityDetector.MODE_AGGRESSIVE);
+        direct.start(VoiceActivityDetector.MODE_AGGRESSIVE);
+        batched.start(VoiceActivityDetector.MODE_AGGRESSIVE);
+
+        byte[] decisions = new byte[frames];
+        int voiced = batched.feedFrames(audio, 0, FRAME, frames, decisions);
+
+        short[] frame = new short[FRAME];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME * 2).order(ByteOrder.nativeOrder());
+        int expectedVoiced = 0;
+        for (int f = 0; f < frames; f++) {
+            System.arraycopy(audio, f * FRAME, frame, 0, FRAME);
+            buffer.asShortBuffer().put(frame);
+            int expected = heap.feed(frame, FRAME);
+            assertEquals(expected, direct.feedDirect(buffer, FRAME));
+            assertEquals(expected, decisions[f]);
+            expectedVoiced += expected;
+        }
+        assertEquals(expectedVoiced, voiced);
+    }
+
+    @Test
+    public void invalidUse_isRejected() {
+        EnergyVad vad = new EnergyVad();
+        short[] frame = new short[FRAME];
+        assertEquals(-1, vad.feed(frame, FRAME));
+        assertEquals(-3, vad.start(4));
+        assertEquals(0, vad.start(VoiceActivityDetector.MODE_QUALITY));
+        assertEquals(-1, vad.feed(frame, EnergyVad.MAX_FRAME_LENGTH + 1));
+        assertEquals(-1, vad.feed(frame, FRAME + 1));
+        vad.stop();
+        assertEquals(-1, vad.feed(frame, FRAME));
+    }
+
+    private static double minEnvelope(int start) {
+        double envelope = 1;
+        for (int i = start; i < start + FRAME; i++) {
+            envelope = Math.min(envelope, SyntheticSpeech.envelope(i));
+        }
+        return envelope;
+    }
+}
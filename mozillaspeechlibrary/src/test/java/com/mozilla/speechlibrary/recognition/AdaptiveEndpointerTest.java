@@ -0,0 +1,108 @@
+package com.mozilla.speechlibrary.recognition;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds voice and silence patterns in 20 ms frames and checks when the utterance ends, to the frame.
+ */
+public class AdaptiveEndpointerTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_MS = 20;
+    private static final int FRAME = SAMPLE_RATE * FRAME_MS / 1000;
+
+    private final short[] mFrame = new short[FRAME];
+    private AdaptiveEndpointer mEndpointer;
+
+    @Before
+    public void setUp() {
+        mEndpointer = new AdaptiveEndpointer(250, 200, 500, 1500, 10000);
+        mEndpointer.start(SAMPLE_RATE);
+    }
+
+    @Test
+    public void shortUtterance_endsAfterMinimumSilence() {
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(500, millisUntilEnd(false));
+    }
+
+    @Test
+    public void endSilence_adaptsToLongestPause() {
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(Endpointer.CONTINUE, feed(false, 400));
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(600, millisUntilEnd(false));
+    }
+
+    @Test
+    public void endSilence_isCappedAtMaximum() {
+        // Each pause fits in the end silence left by the one before
+        for (int pause : new int[] {400, 580, 860, 1280}) {
+            assertEquals(Endpointer.CONTINUE, feed(true, 500));
+            assertEquals(Endpointer.CONTINUE, feed(false, pause));
+        }
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(1500, millisUntilEnd(false));
+    }
+
+    @Test
+    public void gapsWithinHangover_areNotPauses() {
+        assertFalse(mEndpointer.isInSpeech());
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(Endpointer.CONTINUE, feed(false, 200));
+        assertTrue(mEndpointer.isInSpeech());
+        assertEquals(Endpointer.CONTINUE, feed(false, 20));
+        assertFalse(mEndpointer.isInSpeech());
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(500, millisUntilEnd(false));
+    }
+
+    @Test
+    public void noiseBlips_doNotStartSpeech() {
+        assertEquals(Endpointer.CONTINUE, feed(true, 100));
+        assertEquals(Endpointer.CONTINUE, feed(false, 2000));
+        assertEquals(Endpointer.CONTINUE, feed(true, 100));
+        assertEquals(Endpointer.NO_SPEECH, feed(false, 7800));
+    }
+
+    @Test
+    public void maxUtterance_endsContinuousSpeech() {
+        assertEquals(Endpointer.CONTINUE, feed(true, 9980));
+        assertEquals(Endpointer.END_OF_SPEECH, feed(true, 20));
+    }
+
+    @Test
+    public void start_resetsState() {
+        feed(true, 500);
+        feed(false, 400);
+        feed(true, 500);
+        mEndpointer.start(SAMPLE_RATE);
+        assertFalse(mEndpointer.isInSpeech());
+        assertEquals(Endpointer.CONTINUE, feed(true, 500));
+        assertEquals(500, millisUntilEnd(false));
+    }
+
+    // Feeds the given time in frames; the result of the last frame, or the first one that is not CONTINUE
+    private int feed(boolean voice, int millis) {
+        int result = Endpointer.CONTINUE;
+        for (int t = 0; t < millis && result == Endpointer.CONTINUE; t += FRAME_MS) {
+            result = mEndpointer.feed(voice, mFrame, FRAME);
+        }
+        return result;
+    }
+
+    private int millisUntilEnd(boolean voice) {
+        for (int t = FRAME_MS; t <= 60000; t += FRAME_MS) {
+            int result = mEndpointer.feed(voice, mFrame, FRAME);
+            if (result != Endpointer.CONTINUE) {
+                assertEquals(Endpointer.END_OF_SPEECH, result);
+                return t;
+            }
+        }
+        fail("No end of speech");
+        return -1;
+    }
+}
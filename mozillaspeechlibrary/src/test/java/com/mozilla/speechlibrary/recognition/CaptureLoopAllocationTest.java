@@ -0,0 +1,129 @@
+package com.mozilla.speechlibrary.recognition;
+
+import com.mozilla.speechlibrary.EnergyVad;
+import com.mozilla.speechlibrary.SpeechResultCallback;
+import com.mozilla.speechlibrary.SyntheticSpeech;
+import com.mozilla.speechlibrary.VoiceActivityDetector;
+import com.mozilla.speechlibrary.stt.FramePool;
+import com.mozilla.speechlibrary.stt.STTClient;
+import com.mozilla.speechlibrary.stt.STTResult;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the per-frame work of the capture loop, {@link SpeechRecognition#processFrame}, with the pure Java detector,
+ * the spectrum level meter and the endpointer, and checks that the capture thread allocates nothing in steady state.
+ */
+public class CaptureLoopAllocationTest {
+
+    private static final int SAMPLE_RATE = SyntheticSpeech.SAMPLE_RATE;
+    private static final int FRAME_SIZE = 320;
+    private static final int WARM_UP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 10000;
+
+    // Less than a single frame buffer or spectrum, so no per-frame allocation can hide below it
+    private static final long ALLOWED_BYTES = 512;
+
+    private final short[] mAudio = SyntheticSpeech.generate(10, 100, 42);
+    private final ByteBuffer mFrame = ByteBuffer.allocateDirect(FRAME_SIZE * 2).order(ByteOrder.nativeOrder());
+    private final ShortBuffer mFrameSamples = mFrame.asShortBuffer();
+    private final FramePool mPool = new FramePool(8, FRAME_SIZE);
+    private final VoiceActivityDetector mVad = new EnergyVad();
+    private final MicActivityMeter mMeter = new MicActivityMeter(SAMPLE_RATE, 10, true, FRAME_SIZE);
+    private final Endpointer mEndpointer = new AdaptiveEndpointer(250, 200, 500, 1500, 10000);
+
+    private int mPosition;
+    private int mEndpoints;
+    private int mLevels;
+    private long mEncoded;
+
+    // Consumes every frame and returns it to the pool, as the STT clients do
+    private final STTClient mStt = new STTClient() {
+        @Override
+        public void encode(short[] buffer, int pos, int len) {
+            for (int i = pos; i < pos + len; i++) {
+                mEncoded += buffer[i];
+            }
+            mPool.release(buffer);
+        }
+    };
+
+    private final SpeechResultCallback mCallback = new SpeechResultCallback() {
+        @Override
+        public void onStartListen() {
+        }
+
+        @Override
+        public void onMicActivity(double fftsum) {
+            mLevels++;
+        }
+
+        @Override
+        public void onDecoding() {
+        }
+
+        @Override
+        public void onSTTResult(STTResult result) {
+        }
+
+        @Override
+        public void onNoVoice() {
+        }
+
+        @Override
+        public void onError(int errorType, String error) {
+        }
+    };
+
+    @Test
+    public void captureLoop_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        assertEquals(0, mVad.start(VoiceActivityDetector.MODE_VERY_AGGRESSIVE));
+        mEndpointer.start(SAMPLE_RATE);
+
+        runFrames(WARM_UP_FRAMES);
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        runFrames(MEASURED_FRAMES);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // The loop did its work: utterances ended, levels were reported and samples reached the client
+        assertTrue(mEndpoints > 0);
+        assertTrue(mLevels > 0);
+        assertTrue(mEncoded != 0);
+        assertTrue("Capture loop allocated " + allocated + " bytes", allocated < ALLOWED_BYTES);
+    }
+
+    private void runFrames(int frames) {
+        for (int f = 0; f < frames; f++) {
+            // Stands in for AudioRecord.read, which fills the direct buffer
+            if (mPosition + FRAME_SIZE > mAudio.length) {
+                mPosition = 0;
+            }
+            mFrameSamples.clear();
+            mFrameSamples.put(mAudio, mPosition, FRAME_SIZE);
+            mPosition += FRAME_SIZE;
+
+            int endpoint = SpeechRecognition.processFrame(mFrame, mFrameSamples, FRAME_SIZE, mVad, mPool, mMeter,
+                    mEndpointer, mStt, mCallback);
+            if (endpoint != Endpointer.CONTINUE) {
+                // Next utterance
+                mEndpoints++;
+                mEndpointer.start(SAMPLE_RATE);
+            }
+        }
+    }
+}
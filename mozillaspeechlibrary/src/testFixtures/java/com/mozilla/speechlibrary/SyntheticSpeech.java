@@ -0,0 +1,58 @@
+package com.mozilla.speechlibrary;
+
+import java.util.Random;
+
+/**
+ * Generates reproducible 16 kHz test audio: white noise with voiced bursts every other half second.
+ * A burst is a harmonic series on a slowly moving pitch, amplitude modulated at the syllable rate.
+ *
+ * Shared by the unit tests, the device tests and the benchmarks of the voice activity detectors.
+ */
+public final class SyntheticSpeech {
+
+    public static final int SAMPLE_RATE = 16000;
+
+    private SyntheticSpeech() {
+    }
+
+    /**
+     * @return true if the given sample lies in a burst, i.e. in the second half of a second
+     */
+    public static boolean isBurst(int sample) {
+        return (sample / (SAMPLE_RATE / 2) & 1) == 1;
+    }
+
+    /**
+     * @return amplitude of the bursts at the given sample, from 0 to 1; 0 outside bursts
+     */
+    public static double envelope(int sample) {
+        if (!isBurst(sample)) {
+            return 0;
+        }
+        double t = (double) sample / SAMPLE_RATE;
+        return 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+    }
+
+    /**
+     * @param seconds length of the audio
+     * @param noise standard deviation of the noise, in sample units
+     * @param seed seed of the noise
+     */
+    public static short[] generate(int seconds, double noise, long seed) {
+        Random random = new Random(seed);
+        short[] samples = new short[seconds * SAMPLE_RATE];
+        for (int i = 0; i < samples.length; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double v = random.nextGaussian() * noise;
+            double envelope = envelope(i);
+            if (envelope > 0) {
+                double pitch = 120 + 20 * Math.sin(3 * t);
+                for (int h = 1; h <= 20; h++) {
+                    v += 3000.0 / h * envelope * Math.sin(2 * Math.PI * pitch * h * t);
+                }
+            }
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(v)));
+        }
+        return samples;
+    }
+}